@@ -1,12 +1,20 @@
 package com.insight.base.organize.common;
 
 import com.insight.base.organize.common.dto.Organize;
+import com.insight.base.organize.common.dto.OrganizePath;
 import com.insight.base.organize.common.mapper.CoreMapper;
+import com.insight.utils.pojo.base.BusinessException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author 宣炳刚
@@ -15,27 +23,162 @@ import java.time.LocalDateTime;
  */
 @Component
 public class Core {
+    private static final int BATCH_SIZE = 1000;
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private final CoreMapper mapper;
+    private final OrganizeCache cache;
 
     /**
      * 构造方法
      *
      * @param mapper TenantMapper
+     * @param cache  组织机构缓存
      */
-    public Core(CoreMapper mapper) {
+    public Core(CoreMapper mapper, OrganizeCache cache) {
         this.mapper = mapper;
+        this.cache = cache;
     }
 
     /**
      * 新增组织机构
+     * 上级节点尚无祖先索引(不存在或尚未写入)时抛出异常并回滚, 由消息重试等待上级节点写入
      *
      * @param dto 组织机构DTO
      */
+    @Transactional
     public void addOrganize(Organize dto) {
         dto.setInvalid(false);
         dto.setCreatedTime(LocalDateTime.now());
 
         mapper.addOrganize(dto);
+        int count = mapper.addOrganizePath(dto);
+        if (dto.getParentId() != null && count < 2) {
+            throw new BusinessException("不存在的上级机构或部门: " + dto.getParentId());
+        }
+
+        cache.evictTree(dto.getTenantId());
+    }
+
+    /**
+     * 批量新增组织机构, 组织机构和祖先索引均按固定大小分批写入
+     * 上级节点可以是已存在的节点, 也可以是同批次的节点
+     *
+     * @param list 组织机构DTO集合
+     */
+    @Transactional
+    public void addOrganizes(List<Organize> list) {
+        var now = LocalDateTime.now();
+        var nodes = new HashMap<Long, Organize>(list.size() * 2);
+        for (var dto : list) {
+            dto.setInvalid(false);
+            dto.setCreatedTime(now);
+            nodes.put(dto.getId(), dto);
+        }
+
+        // 已存在的上级节点的祖先索引从数据库读取, 同批次节点的祖先索引在内存中推导
+        var parentIds = list.stream().map(Organize::getParentId).filter(i -> i != null && !nodes.containsKey(i)).distinct().toList();
+        var ancestors = new HashMap<Long, List<OrganizePath>>();
+        for (int i = 0; i < parentIds.size(); i += BATCH_SIZE) {
+            for (var path : mapper.getPaths(parentIds.subList(i, Math.min(i + BATCH_SIZE, parentIds.size())))) {
+                ancestors.computeIfAbsent(path.getDescendantId(), k -> new ArrayList<>()).add(path);
+            }
+        }
+
+        for (var parentId : parentIds) {
+            if (!ancestors.containsKey(parentId)) {
+                throw new BusinessException("不存在的上级机构或部门: " + parentId);
+            }
+        }
+
+        for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+            mapper.addOrganizes(list.subList(i, Math.min(i + BATCH_SIZE, list.size())));
+        }
+
+        var paths = new ArrayList<OrganizePath>();
+        for (var dto : list) {
+            for (var path : getAncestors(dto, nodes, ancestors)) {
+                paths.add(path);
+                if (paths.size() == BATCH_SIZE) {
+                    mapper.addPaths(paths);
+                    paths.clear();
+                }
+            }
+        }
+
+        if (!paths.isEmpty()) {
+            mapper.addPaths(paths);
+        }
+
+        list.stream().map(Organize::getTenantId).distinct().forEach(cache::evictTree);
+    }
+
+    /**
+     * 推导节点的祖先索引, 结果缓存在ancestors中
+     * 沿同批次的上级节点向上查找, 直到已知祖先索引的节点或批次外的上级节点, 再自上而下逐级推导
+     *
+     * @param dto       组织机构DTO
+     * @param nodes     同批次的组织机构
+     * @param ancestors 已知节点的祖先索引
+     * @return 节点的祖先索引
+     */
+    private List<OrganizePath> getAncestors(Organize dto, Map<Long, Organize> nodes, Map<Long, List<OrganizePath>> ancestors) {
+        var known = ancestors.get(dto.getId());
+        if (known != null) {
+            return known;
+        }
+
+        var chain = new ArrayList<Organize>();
+        var visiting = new HashSet<Long>();
+        List<OrganizePath> parentPaths = List.of();
+        for (var node = dto; node != null; ) {
+            if (!visiting.add(node.getId())) {
+                throw new BusinessException("组织机构的上级节点形成环路: " + node.getId());
+            }
+
+            chain.add(node);
+            var parentId = node.getParentId();
+            if (parentId == null) {
+                break;
+            }
+
+            var paths = ancestors.get(parentId);
+            if (paths != null) {
+                parentPaths = paths;
+                break;
+            }
+
+            node = nodes.get(parentId);
+        }
+
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            var id = chain.get(i).getId();
+            var paths = new ArrayList<OrganizePath>(parentPaths.size() + 1);
+            paths.add(newPath(id, id, 0));
+            for (var path : parentPaths) {
+                paths.add(newPath(path.getAncestorId(), id, path.getDepth() + 1));
+            }
+
+            ancestors.put(id, paths);
+            parentPaths = paths;
+        }
+
+        return parentPaths;
+    }
+
+    /**
+     * 创建祖先索引
+     *
+     * @param ancestorId   上级节点ID
+     * @param descendantId 下级节点ID
+     * @param depth        层级距离
+     * @return 祖先索引
+     */
+    private static OrganizePath newPath(Long ancestorId, Long descendantId, int depth) {
+        var path = new OrganizePath();
+        path.setAncestorId(ancestorId);
+        path.setDescendantId(descendantId);
+        path.setDepth(depth);
+
+        return path;
     }
 }
@@ -1,6 +1,5 @@
 package com.insight.base.organize.common;
 
-import com.insight.base.organize.common.config.QueueConfig;
 import com.insight.base.organize.common.dto.Organize;
 import com.insight.utils.Json;
 import com.rabbitmq.client.Channel;
@@ -12,6 +11,11 @@ import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 
 /**
  * @author 宣炳刚
@@ -22,14 +26,17 @@ import java.io.IOException;
 public class Listener {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private final Core core;
+    private final MessageRetry retry;
 
     /**
      * 构造方法
      *
-     * @param core Core
+     * @param core  Core
+     * @param retry 消息重试
      */
-    public Listener(Core core) {
+    public Listener(Core core, MessageRetry retry) {
         this.core = core;
+        this.retry = retry;
     }
 
     /**
@@ -40,16 +47,125 @@ public class Listener {
      * @throws IOException IOException
      */
     @RabbitHandler
-    @RabbitListener(queues = "insight.organize")
+    @RabbitListener(queues = "insight.organize", autoStartup = "#{!${insight.organize.listener.batch:false}}")
     public void receiveOrganize(Channel channel, Message message) throws IOException {
         try {
             String body = new String(message.getBody());
             core.addOrganize(Json.toBean(body, Organize.class));
         } catch (Exception ex) {
             logger.error("发生异常: {}", ex.getMessage());
-            channel.basicPublish(QueueConfig.DELAY_EXCHANGE_NAME, QueueConfig.DELAY_QUEUE_NAME, null, message.getBody());
+            retry.retry(channel, message);
         }finally {
             channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 从队列批量订阅新增组织机构消息(insight.organize.listener.batch = true时启用)
+     * 整批消息以一次批量写入完成; 批量写入失败时逐条重试, 仅将失败的消息转入延时队列. 处理完成后一次确认整批消息,
+     * 发生意外错误时整批消息退回队列, 不会被确认丢弃
+     *
+     * @param channel  Channel
+     * @param messages Message集合
+     * @throws IOException IOException
+     */
+    @RabbitListener(queues = "insight.organize", containerFactory = "batchListenerFactory", autoStartup = "${insight.organize.listener.batch:false}")
+    public void receiveOrganizes(Channel channel, List<Message> messages) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        var tag = messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag();
+        try {
+            addOrganizes(channel, messages);
+        } catch (Throwable ex) {
+            logger.error("批量处理发生错误, 消息退回队列: {}", ex.getMessage());
+            channel.basicNack(tag, true, true);
+            throw ex;
+        }
+
+        channel.basicAck(tag, true);
+    }
+
+    /**
+     * 批量写入消息中的组织机构
+     *
+     * @param channel  Channel
+     * @param messages Message集合
+     * @throws IOException IOException
+     */
+    private void addOrganizes(Channel channel, List<Message> messages) throws IOException {
+        var list = new ArrayList<Organize>(messages.size());
+        var sources = new ArrayList<Message>(messages.size());
+        for (var message : messages) {
+            try {
+                String body = new String(message.getBody());
+                list.add(Json.toBean(body, Organize.class));
+                sources.add(message);
+            } catch (Exception ex) {
+                logger.error("消息解析失败: {}", ex.getMessage());
+                retry.retry(channel, message);
+            }
+        }
+
+        if (list.isEmpty()) {
+            return;
+        }
+
+        try {
+            core.addOrganizes(list);
+        } catch (Exception ex) {
+            logger.warn("批量写入失败, 改为逐条写入: {}", ex.getMessage());
+            addEach(channel, list, sources);
+        }
+    }
+
+    /**
+     * 逐条写入组织机构, 上级节点在同一批消息中时先写入上级节点
+     * 写入失败或上级节点形成环路的消息转入延时队列
+     *
+     * @param channel Channel
+     * @param list    组织机构集合
+     * @param sources 组织机构对应的Message集合
+     * @throws IOException IOException
+     */
+    private void addEach(Channel channel, List<Organize> list, List<Message> sources) throws IOException {
+        var ids = new HashSet<Long>();
+        list.forEach(i -> ids.add(i.getId()));
+
+        var children = new HashMap<Long, List<Integer>>();
+        var queue = new ArrayDeque<Integer>();
+        for (int i = 0; i < list.size(); i++) {
+            var parentId = list.get(i).getParentId();
+            if (parentId != null && ids.contains(parentId)) {
+                children.computeIfAbsent(parentId, k -> new ArrayList<>()).add(i);
+            } else {
+                queue.add(i);
+            }
+        }
+
+        var done = new boolean[list.size()];
+        while (!queue.isEmpty()) {
+            int i = queue.poll();
+            done[i] = true;
+            try {
+                core.addOrganize(list.get(i));
+            } catch (Exception e) {
+                logger.error("发生异常: {}", e.getMessage());
+                retry.retry(channel, sources.get(i));
+            }
+
+            var next = children.remove(list.get(i).getId());
+            if (next != null) {
+                queue.addAll(next);
+            }
+        }
+
+        for (int i = 0; i < list.size(); i++) {
+            if (!done[i]) {
+                logger.error("组织机构的上级节点形成环路: {}", list.get(i).getId());
+                retry.retry(channel, sources.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.insight.base.organize.common;
+
+import com.insight.base.organize.common.config.QueueConfig;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 组织机构消息重试
+ * 失败的消息按重试次数依次进入10秒/60秒/300秒延时队列, 超过最大重试次数后进入停放队列, 由人工修复数据后重放
+ */
+@Component
+public class MessageRetry {
+    private static final String RETRY_HEADER = "x-retry-count";
+    private static final String[] DELAY_QUEUES = {QueueConfig.FIRST_DELAY_QUEUE_NAME, QueueConfig.SECOND_DELAY_QUEUE_NAME, QueueConfig.DELAY_QUEUE_NAME};
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final RabbitTemplate template;
+    private final int maxRetries;
+
+    /**
+     * 构造方法
+     *
+     * @param template   RabbitTemplate
+     * @param maxRetries 最大重试次数
+     */
+    public MessageRetry(RabbitTemplate template, @Value("${insight.organize.listener.max-retries:5}") int maxRetries) {
+        this.template = template;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * 将处理失败的消息转入下一级延时队列, 超过最大重试次数时转入停放队列
+     * 保留原消息的消息头、消息ID和关联ID, 只更新重试次数
+     *
+     * @param channel Channel
+     * @param message Message
+     * @throws IOException IOException
+     */
+    public void retry(Channel channel, Message message) throws IOException {
+        var properties = message.getMessageProperties();
+        var value = properties.getHeaders().get(RETRY_HEADER);
+        int count = value instanceof Number number ? number.intValue() : 0;
+        String queue;
+        if (count >= maxRetries) {
+            queue = QueueConfig.PARKING_QUEUE_NAME;
+            logger.error("消息重试{}次后仍失败, 转入停放队列", count);
+        } else {
+            queue = DELAY_QUEUES[Math.min(count, DELAY_QUEUES.length - 1)];
+        }
+
+        var headers = new HashMap<>(properties.getHeaders());
+        headers.put(RETRY_HEADER, count + 1);
+        var props = new AMQP.BasicProperties.Builder()
+                .contentType(properties.getContentType())
+                .contentEncoding(properties.getContentEncoding())
+                .messageId(properties.getMessageId())
+                .correlationId(properties.getCorrelationId())
+                .deliveryMode(2)
+                .headers(headers)
+                .build();
+
+        channel.basicPublish(QueueConfig.DELAY_EXCHANGE_NAME, queue, props, message.getBody());
+    }
+
+    /**
+     * 将停放队列中的消息重新投递到实际消费队列, 重试次数清零
+     *
+     * @param count 最大重放数量
+     * @return 实际重放数量
+     */
+    public int replay(int count) {
+        var replayed = template.execute(channel -> {
+            int total = 0;
+            while (total < count) {
+                var response = channel.basicGet(QueueConfig.PARKING_QUEUE_NAME, false);
+                if (response == null) {
+                    break;
+                }
+
+                var props = response.getProps();
+                Map<String, Object> headers = props.getHeaders() == null ? new HashMap<>() : new HashMap<>(props.getHeaders());
+                headers.remove(RETRY_HEADER);
+                channel.basicPublish(QueueConfig.TOPIC_EXCHANGE_NAME, QueueConfig.PROCESS_QUEUE_NAME, props.builder().headers(headers).build(), response.getBody());
+                channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+                total++;
+            }
+
+            return total;
+        });
+
+        return replayed == null ? 0 : replayed;
+    }
+}
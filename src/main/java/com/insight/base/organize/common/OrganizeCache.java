@@ -0,0 +1,478 @@
+package com.insight.base.organize.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.insight.base.organize.common.dto.Organize;
+import com.insight.base.organize.common.dto.OrganizeListDto;
+import com.insight.base.organize.common.tree.OrganizeTree;
+import com.insight.utils.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 组织机构缓存
+ * 组织机构详情和租户组织机构树使用两级缓存: 本地内存(L1)和Redis(L2). 数据变更时清除Redis缓存并通过Redis频道广播,
+ * 各节点收到广播后清除本地缓存. 本地缓存另设较短的过期时间, 以限制广播丢失时读到旧数据的时长.
+ * 租户组织机构只在本地缓存树快照, 组织机构列表由快照按原顺序生成, 不再同时常驻列表和快照两份数据.
+ */
+@Component
+public class OrganizeCache implements MessageListener {
+    public static final String EVICT_TOPIC = "insight.organize.evict";
+    private static final String TREE_PREFIX = "T:";
+    private static final String DETAIL_PREFIX = "D:";
+    private static final long LOCAL_EXPIRE = 600;
+    private static final long TREE_EXPIRE = 3600;
+    private static final String TREE_KEY = "Organize:Tree:";
+    private static final String VERSION_KEY = "Organize:TreeVersion:";
+    private static final RedisScript<Long> FILL_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('get', KEYS[2]) or '0') == ARGV[1] then redis.call('set', KEYS[1], ARGV[2], 'EX', ARGV[3]) return 1 end return 0", Long.class);
+    private static final long COUNT_EXPIRE = 60;
+    private static final String COUNT_KEY = "Organize:MemberCount:";
+    private static final long POSTS_EXPIRE = 3600;
+    private static final String POSTS_KEY = "Organize:UserPosts:";
+    private static final String POSTS_VERSION_KEY = "Organize:UserPostsVersion:";
+    private static final long DETAIL_EXPIRE = 3600;
+    private static final String DETAIL_KEY = "Organize:Detail:";
+    private static final String DETAIL_VERSION_KEY = "Organize:DetailVersion:";
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final Cache<Long, OrganizeTree> snapshots = Caffeine.newBuilder().maximumSize(1000).expireAfterWrite(Duration.ofSeconds(LOCAL_EXPIRE)).build();
+    private final Cache<Long, Organize> details = Caffeine.newBuilder().maximumSize(10000).expireAfterWrite(Duration.ofSeconds(LOCAL_EXPIRE)).build();
+    private final StringRedisTemplate redis;
+
+    /**
+     * 构造方法
+     *
+     * @param redis StringRedisTemplate
+     */
+    public OrganizeCache(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    /**
+     * 获取租户的组织机构列表, 由本地缓存的树快照按原顺序生成
+     *
+     * @param tenantId 租户ID
+     * @param loader   组织机构列表加载方法
+     * @return 组织机构列表
+     */
+    public List<OrganizeListDto> getTree(Long tenantId, Supplier<List<OrganizeListDto>> loader) {
+        return getSnapshot(tenantId, loader).toList();
+    }
+
+    /**
+     * 获取租户的组织机构树快照
+     * 快照保存在本地缓存中, 未命中时由Redis缓存或loader加载的组织机构列表重建. 快照在缓存内原子地计算,
+     * 计算期间发生的清除会等待计算完成后再移除快照, 因此不会留下旧快照
+     *
+     * @param tenantId 租户ID
+     * @param loader   组织机构列表加载方法
+     * @return 组织机构树快照
+     */
+    public OrganizeTree getSnapshot(Long tenantId, Supplier<List<OrganizeListDto>> loader) {
+        return snapshots.get(tenantId, k -> OrganizeTree.of(loadTree(tenantId, loader)));
+    }
+
+    /**
+     * 清除租户的组织机构列表缓存及树快照, 并通知其他节点清除本地缓存
+     *
+     * @param tenantId 租户ID
+     */
+    public void evictTree(Long tenantId) {
+        if (tenantId == null) {
+            return;
+        }
+
+        afterCommit(() -> {
+            evictLocalTree(tenantId);
+            evictRemote(() -> {
+                redis.opsForValue().increment(VERSION_KEY + tenantId);
+                redis.delete(TREE_KEY + tenantId);
+            });
+            publish(TREE_PREFIX + tenantId);
+        });
+    }
+
+    /**
+     * 批量获取组织机构详情, 未命中缓存的组织机构通过loader一次性加载并写入缓存
+     * 加载前读取组织机构的版本号, 版本号在加载期间发生变化(已被清除)时不写入缓存, 避免旧数据在清除后被写回
+     *
+     * @param ids    组织机构ID集合
+     * @param loader 组织机构详情加载方法
+     * @return 组织机构ID和详情的映射, 不存在的ID不包含在内
+     */
+    public Map<Long, Organize> getOrganizes(List<Long> ids, Function<List<Long>, List<Organize>> loader) {
+        var map = new LinkedHashMap<Long, Organize>(ids.size() * 2);
+        var remotes = new ArrayList<Long>();
+        for (var id : ids) {
+            var organize = details.getIfPresent(id);
+            if (organize == null) {
+                remotes.add(id);
+            } else {
+                map.put(id, organize);
+            }
+        }
+
+        if (remotes.isEmpty()) {
+            return map;
+        }
+
+        var keys = remotes.stream().map(i -> DETAIL_KEY + i).toList();
+        List<String> values = null;
+        try {
+            values = redis.opsForValue().multiGet(keys);
+        } catch (Exception ex) {
+            logger.warn("读取组织机构详情缓存失败: {}", ex.getMessage());
+        }
+
+        var misses = new ArrayList<Long>();
+        for (int i = 0; i < remotes.size(); i++) {
+            var value = values == null ? null : values.get(i);
+            if (value == null) {
+                misses.add(remotes.get(i));
+            } else {
+                var organize = Json.toBean(value, Organize.class);
+                details.put(remotes.get(i), organize);
+                map.put(remotes.get(i), organize);
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return map;
+        }
+
+        List<String> versions = null;
+        try {
+            versions = redis.opsForValue().multiGet(misses.stream().map(i -> DETAIL_VERSION_KEY + i).toList());
+        } catch (Exception ex) {
+            logger.warn("读取组织机构详情版本失败: {}", ex.getMessage());
+        }
+
+        var versionMap = new HashMap<Long, String>(misses.size() * 2);
+        for (int i = 0; i < misses.size(); i++) {
+            var version = versions == null ? null : versions.get(i);
+            versionMap.put(misses.get(i), version == null ? "0" : version);
+        }
+
+        for (var organize : loader.apply(misses)) {
+            var id = organize.getId();
+            map.put(id, organize);
+            if (versions == null) {
+                continue;
+            }
+
+            try {
+                var filled = redis.execute(FILL_SCRIPT, List.of(DETAIL_KEY + id, DETAIL_VERSION_KEY + id), versionMap.get(id), Json.toJson(organize), String.valueOf(DETAIL_EXPIRE));
+                if (Long.valueOf(1).equals(filled)) {
+                    details.put(id, organize);
+                }
+            } catch (Exception ex) {
+                logger.warn("写入组织机构详情缓存失败: {}", ex.getMessage());
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * 清除组织机构详情缓存, 并通知其他节点清除本地缓存
+     * 清除前递增组织机构的版本号, 使清除前开始的加载不再写回缓存
+     *
+     * @param ids 组织机构ID集合
+     */
+    public void evictOrganizes(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        var keys = ids.stream().map(i -> DETAIL_KEY + i).toList();
+        var message = DETAIL_PREFIX + String.join(",", ids.stream().map(String::valueOf).toList());
+        afterCommit(() -> {
+            details.invalidateAll(ids);
+            evictRemote(() -> {
+                ids.forEach(i -> incrementVersion(DETAIL_VERSION_KEY + i, DETAIL_EXPIRE));
+                redis.delete(keys);
+            });
+            publish(message);
+        });
+    }
+
+    /**
+     * 获取组织机构成员数量, 缓存未命中时通过loader统计并写入缓存
+     * 同一组织机构不同查询条件的数量保存在同一个Hash中, 以便成员变更时整体清除
+     *
+     * @param id     组织机构ID
+     * @param filter 查询条件
+     * @param loader 成员数量统计方法
+     * @return 成员数量
+     */
+    public long getMemberCount(Long id, String filter, Supplier<Long> loader) {
+        var key = COUNT_KEY + id;
+        try {
+            var value = redis.opsForHash().get(key, filter);
+            if (value != null) {
+                return Long.parseLong(value.toString());
+            }
+        } catch (Exception ex) {
+            logger.warn("读取成员数量缓存失败: {}", ex.getMessage());
+            return loader.get();
+        }
+
+        long count = loader.get();
+        try {
+            redis.opsForHash().put(key, filter, String.valueOf(count));
+            var expire = redis.getExpire(key);
+            if (expire == null || expire < 0) {
+                redis.expire(key, COUNT_EXPIRE, TimeUnit.SECONDS);
+            }
+        } catch (Exception ex) {
+            logger.warn("写入成员数量缓存失败: {}", ex.getMessage());
+        }
+
+        return count;
+    }
+
+    /**
+     * 清除组织机构成员数量缓存
+     *
+     * @param id 组织机构ID
+     */
+    public void evictMemberCount(Long id) {
+        afterCommit(() -> evictRemote(() -> redis.delete(COUNT_KEY + id)));
+    }
+
+    /**
+     * 批量清除组织机构成员数量缓存
+     *
+     * @param ids 组织机构ID集合
+     */
+    public void evictMemberCounts(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        var keys = ids.stream().map(i -> COUNT_KEY + i).toList();
+        afterCommit(() -> evictRemote(() -> redis.delete(keys)));
+    }
+
+    /**
+     * 批量获取用户所属的组织机构ID, 未命中缓存的用户通过loader一次性加载并写入缓存
+     * 加载前读取用户的版本号, 版本号在加载期间发生变化(已被清除)时不写入缓存
+     *
+     * @param userIds 用户ID集合
+     * @param loader  成员关系加载方法, 返回用户ID和组织机构ID集合的映射
+     * @return 用户ID和组织机构ID集合的映射
+     */
+    public Map<Long, List<Long>> getUserPosts(List<Long> userIds, Function<List<Long>, Map<Long, List<Long>>> loader) {
+        var keys = userIds.stream().map(i -> POSTS_KEY + i).toList();
+        List<String> values;
+        try {
+            values = redis.opsForValue().multiGet(keys);
+        } catch (Exception ex) {
+            logger.warn("读取成员关系缓存失败: {}", ex.getMessage());
+            return loader.apply(userIds);
+        }
+
+        var map = new HashMap<Long, List<Long>>(userIds.size() * 2);
+        var misses = new ArrayList<Long>();
+        for (int i = 0; i < userIds.size(); i++) {
+            var value = values == null ? null : values.get(i);
+            if (value == null) {
+                misses.add(userIds.get(i));
+            } else {
+                map.put(userIds.get(i), value.isEmpty() ? List.of() : Arrays.stream(value.split(",")).map(Long::valueOf).toList());
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return map;
+        }
+
+        List<String> versions = null;
+        try {
+            versions = redis.opsForValue().multiGet(misses.stream().map(i -> POSTS_VERSION_KEY + i).toList());
+        } catch (Exception ex) {
+            logger.warn("读取成员关系版本失败: {}", ex.getMessage());
+        }
+
+        var loaded = loader.apply(misses);
+        for (int i = 0; i < misses.size(); i++) {
+            var userId = misses.get(i);
+            var posts = loaded.getOrDefault(userId, List.of());
+            map.put(userId, posts);
+            if (versions == null) {
+                continue;
+            }
+
+            try {
+                var version = versions.get(i) == null ? "0" : versions.get(i);
+                var value = String.join(",", posts.stream().map(String::valueOf).toList());
+                redis.execute(FILL_SCRIPT, List.of(POSTS_KEY + userId, POSTS_VERSION_KEY + userId), version, value, String.valueOf(POSTS_EXPIRE));
+            } catch (Exception ex) {
+                logger.warn("写入成员关系缓存失败: {}", ex.getMessage());
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * 清除用户所属组织机构的缓存
+     * 清除前递增用户的版本号, 使清除前开始的加载不再写回缓存
+     *
+     * @param userIds 用户ID集合
+     */
+    public void evictUserPosts(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+
+        var keys = userIds.stream().map(i -> POSTS_KEY + i).toList();
+        afterCommit(() -> evictRemote(() -> {
+            userIds.forEach(i -> incrementVersion(POSTS_VERSION_KEY + i, POSTS_EXPIRE));
+            redis.delete(keys);
+        }));
+    }
+
+    /**
+     * 在当前事务提交后执行缓存清除, 避免并发读取在提交前把旧数据重新写回缓存
+     *
+     * @param action 缓存清除操作
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 接收其他节点的缓存清除广播, 清除本地缓存
+     *
+     * @param message 广播消息
+     * @param pattern 频道
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        var body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            if (body.startsWith(TREE_PREFIX)) {
+                evictLocalTree(Long.valueOf(body.substring(TREE_PREFIX.length())));
+            } else if (body.startsWith(DETAIL_PREFIX)) {
+                details.invalidateAll(Arrays.stream(body.substring(DETAIL_PREFIX.length()).split(",")).map(Long::valueOf).toList());
+            }
+        } catch (NumberFormatException ex) {
+            logger.warn("无效的缓存清除消息: {}", body);
+        }
+    }
+
+    /**
+     * 清除租户组织机构的本地缓存
+     *
+     * @param tenantId 租户ID
+     */
+    private void evictLocalTree(Long tenantId) {
+        snapshots.invalidate(tenantId);
+    }
+
+    /**
+     * 从Redis缓存读取租户的组织机构列表, 未命中时通过loader加载并写入缓存
+     * 缓存清除时递增租户的版本号, 加载前读取的版本号已变化时不写入缓存, 避免事务提交前读到的旧数据在清除后被写回
+     *
+     * @param tenantId 租户ID
+     * @param loader   组织机构列表加载方法
+     * @return 组织机构列表
+     */
+    private List<OrganizeListDto> loadTree(Long tenantId, Supplier<List<OrganizeListDto>> loader) {
+        var key = TREE_KEY + tenantId;
+        String version;
+        try {
+            var json = redis.opsForValue().get(key);
+            if (json != null) {
+                return Arrays.asList(Json.toBean(json, OrganizeListDto[].class));
+            }
+
+            version = redis.opsForValue().get(VERSION_KEY + tenantId);
+        } catch (Exception ex) {
+            logger.warn("读取组织机构缓存失败: {}", ex.getMessage());
+            return loader.get();
+        }
+
+        var list = loader.get();
+        try {
+            redis.execute(FILL_SCRIPT, List.of(key, VERSION_KEY + tenantId), version == null ? "0" : version, Json.toJson(list), String.valueOf(TREE_EXPIRE));
+        } catch (Exception ex) {
+            logger.warn("写入组织机构缓存失败: {}", ex.getMessage());
+        }
+
+        return list;
+    }
+
+    /**
+     * 清除Redis缓存, 失败时只记录日志, 不影响已提交的事务和其他清除操作
+     * 本地缓存在此之前已清除, 本节点随后收到自己的广播时会再次清除, 因此清除期间读回的旧数据不会常驻本地缓存
+     *
+     * @param action Redis缓存清除操作
+     */
+    private void evictRemote(Runnable action) {
+        try {
+            action.run();
+        } catch (Exception ex) {
+            logger.warn("清除Redis缓存失败: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * 递增缓存版本号并设置过期时间
+     * 版本号过期后读到的版本变为0, 与加载前读取的版本不一致, 不会因过期而写回旧数据
+     *
+     * @param key    版本号Key
+     * @param expire 过期时间(秒), 不小于对应缓存的过期时间
+     */
+    private void incrementVersion(String key, long expire) {
+        redis.opsForValue().increment(key);
+        redis.expire(key, expire, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 广播缓存清除消息, 广播失败时其他节点的本地缓存在过期后失效
+     *
+     * @param message 广播消息
+     */
+    private void publish(String message) {
+        try {
+            redis.convertAndSend(EVICT_TOPIC, message);
+        } catch (Exception ex) {
+            logger.warn("广播缓存清除消息失败: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.insight.base.organize.common;
+
+import com.insight.base.organize.common.dto.Organize;
+import com.insight.base.organize.common.mapper.OrganizeMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 组织机构加载器
+ * 同一请求内对同一组织机构只查询一次; 不同请求并发加载同一组织机构时只有一个请求访问数据库, 其余请求等待并共享其结果.
+ */
+@Component
+public class OrganizeLoader {
+    private static final String MEMO_KEY = OrganizeLoader.class.getName() + ".memo";
+    private final Map<Long, CompletableFuture<Organize>> loading = new ConcurrentHashMap<>();
+    private final OrganizeMapper mapper;
+
+    /**
+     * 构造方法
+     *
+     * @param mapper OrganizeMapper
+     */
+    public OrganizeLoader(OrganizeMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * 获取组织机构
+     *
+     * @param id 组织机构ID
+     * @return 组织机构, 不存在时返回null
+     */
+    public Organize get(Long id) {
+        var memo = getMemo();
+        if (memo != null && memo.containsKey(id)) {
+            return memo.get(id);
+        }
+
+        var organize = load(id);
+        if (memo != null) {
+            memo.put(id, organize);
+        }
+
+        return organize;
+    }
+
+    /**
+     * 清除当前请求中已加载的组织机构, 组织机构变更后调用
+     *
+     * @param id 组织机构ID
+     */
+    public void evict(Long id) {
+        var memo = getMemo();
+        if (memo != null) {
+            memo.remove(id);
+        }
+    }
+
+    /**
+     * 从数据库加载组织机构, 同一ID的并发加载合并为一次查询
+     *
+     * @param id 组织机构ID
+     * @return 组织机构, 不存在时返回null
+     */
+    private Organize load(Long id) {
+        var future = new CompletableFuture<Organize>();
+        var current = loading.putIfAbsent(id, future);
+        if (current != null) {
+            try {
+                return current.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+            }
+        }
+
+        try {
+            var organize = mapper.getOrganize(id);
+            future.complete(organize);
+            return organize;
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(id, future);
+        }
+    }
+
+    /**
+     * 获取当前请求的组织机构缓存, 非请求线程(如消息监听)返回null
+     *
+     * @return 组织机构ID和组织机构的映射
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, Organize> getMemo() {
+        var attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+
+        var memo = (Map<Long, Organize>) attributes.getAttribute(MEMO_KEY, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = new HashMap<>();
+            attributes.setAttribute(MEMO_KEY, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+
+        return memo;
+    }
+}
@@ -1,11 +1,11 @@
 package com.insight.base.organize.common.client;
 
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.insight.base.organize.common.dto.OperateType;
 import com.insight.utils.Json;
 import com.insight.utils.common.ApplicationContextHolder;
 import com.insight.utils.pojo.auth.LoginInfo;
 import com.insight.utils.pojo.message.Log;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 
 /**
  * @author 宣炳刚
@@ -13,10 +13,11 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
  * @remark RabbitMQ客户端
  */
 public class LogClient {
-    private static final RabbitTemplate TEMPLATE = ApplicationContextHolder.getContext().getBean(RabbitTemplate.class);
+    private static final LogPublisher PUBLISHER = ApplicationContextHolder.getContext().getBean(LogPublisher.class);
 
     /**
      * 记录操作日志
+     * 日志内容只序列化一次, 以原始JSON片段嵌入消息体, 消息格式与此前先克隆为Map再序列化的结果相同
      *
      * @param info     用户关键信息
      * @param business 业务类型
@@ -31,10 +32,10 @@ public class LogClient {
         log.setType(type.toString());
         log.setBusiness(business);
         log.setBusinessId(id);
-        log.setContent(Json.clone(content, Object.class));
+        log.setContent(content == null ? null : new RawValue(Json.toJson(content)));
         log.setCreator(info.getName());
         log.setCreatorId(info.getId());
 
-        TEMPLATE.convertAndSend("amq.topic", "insight.log", log);
+        PUBLISHER.publish(log);
     }
 }
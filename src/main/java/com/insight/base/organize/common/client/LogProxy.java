@@ -0,0 +1,171 @@
+package com.insight.base.organize.common.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.insight.utils.pojo.base.BusinessException;
+import com.insight.utils.pojo.base.Reply;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 日志服务代理
+ * 对日志服务的调用依次经过短时缓存、并发隔离和熔断: 缓存命中时不调用日志服务; 并发调用数超过上限或熔断期间不调用日志服务,
+ * 直接返回最近一次成功的结果. 只有成功的结果会被缓存; 调用异常和失败的结果都计入连续失败次数,
+ * 达到阈值后熔断, 冷却期满后放行一个探测请求, 成功则恢复.
+ */
+@Component
+public class LogProxy {
+    private static final String CODE = "Organize";
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicLong openUntil = new AtomicLong();
+    private final LogServiceClient client;
+    private final Cache<String, Reply> fresh;
+    private final Cache<String, Reply> lastGood;
+    private final Semaphore bulkhead;
+    private final int threshold;
+    private final long openDuration;
+
+    /**
+     * 构造方法
+     *
+     * @param client       日志服务Feign客户端
+     * @param ttl          结果缓存秒数
+     * @param permits      最大并发调用数
+     * @param threshold    触发熔断的连续失败次数
+     * @param openDuration 熔断冷却毫秒数
+     */
+    public LogProxy(LogServiceClient client,
+                    @Value("${insight.log.proxy.ttl:10}") long ttl,
+                    @Value("${insight.log.proxy.permits:10}") int permits,
+                    @Value("${insight.log.proxy.failure-threshold:5}") int threshold,
+                    @Value("${insight.log.proxy.open-duration:30000}") long openDuration) {
+        this.client = client;
+        this.fresh = Caffeine.newBuilder().maximumSize(1000).expireAfterWrite(Duration.ofSeconds(ttl)).build();
+        this.lastGood = Caffeine.newBuilder().maximumSize(1000).expireAfterWrite(Duration.ofHours(1)).build();
+        this.bulkhead = new Semaphore(permits);
+        this.threshold = threshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * 获取组织机构的日志列表
+     *
+     * @param id      业务ID
+     * @param keyword 查询关键词
+     * @return Reply
+     */
+    public Reply getLogs(Long id, String keyword) {
+        return call("L:" + id + ":" + keyword, () -> client.getLogs(id, CODE, keyword));
+    }
+
+    /**
+     * 获取日志详情
+     *
+     * @param id 日志ID
+     * @return Reply
+     */
+    public Reply getLog(Long id) {
+        return call("D:" + id, () -> client.getLog(id));
+    }
+
+    /**
+     * 调用日志服务
+     *
+     * @param key    缓存键
+     * @param action 调用方法
+     * @return Reply
+     */
+    private Reply call(String key, Supplier<Reply> action) {
+        var reply = fresh.getIfPresent(key);
+        if (reply != null) {
+            return reply;
+        }
+
+        if (!bulkhead.tryAcquire()) {
+            return fallback(key, null);
+        }
+
+        // 先取得并发许可再占用探测名额, 避免探测名额被取不到许可的请求占用而延长熔断
+        if (!allowRequest()) {
+            bulkhead.release();
+            return fallback(key, null);
+        }
+
+        try {
+            reply = action.get();
+        } catch (RuntimeException ex) {
+            onFailure();
+            return fallback(key, ex);
+        } finally {
+            bulkhead.release();
+        }
+
+        if (reply == null || !Boolean.TRUE.equals(reply.getSuccess())) {
+            onFailure();
+            var last = lastGood.getIfPresent(key);
+            return last == null ? reply : last;
+        }
+
+        failures.set(0);
+        openUntil.set(0);
+        fresh.put(key, reply);
+        lastGood.put(key, reply);
+        return reply;
+    }
+
+    /**
+     * 记录一次调用失败, 连续失败次数达到阈值时熔断
+     */
+    private void onFailure() {
+        if (failures.incrementAndGet() >= threshold) {
+            openUntil.set(System.currentTimeMillis() + openDuration);
+            logger.warn("日志服务连续调用失败{}次, 熔断{}毫秒", failures.get(), openDuration);
+        }
+    }
+
+    /**
+     * 是否允许调用日志服务, 熔断冷却期满后只放行一个探测请求
+     *
+     * @return 是否允许调用
+     */
+    private boolean allowRequest() {
+        long until = openUntil.get();
+        if (until == 0) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        return now >= until && openUntil.compareAndSet(until, now + openDuration);
+    }
+
+    /**
+     * 返回最近一次成功的结果, 没有可用结果时抛出异常
+     *
+     * @param key 缓存键
+     * @param ex  调用异常
+     * @return Reply
+     */
+    private Reply fallback(String key, RuntimeException ex) {
+        var reply = lastGood.getIfPresent(key);
+        if (reply != null) {
+            return reply;
+        }
+
+        if (ex != null) {
+            throw ex;
+        }
+
+        throw new BusinessException("日志服务繁忙,请稍后重试");
+    }
+}
@@ -0,0 +1,214 @@
+package com.insight.base.organize.common.client;
+
+import com.insight.utils.pojo.message.Log;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 操作日志异步发布器
+ * 日志先写入有界缓冲区, 由后台线程分批发送到RabbitMQ, 请求线程不再等待消息服务器
+ * 发布器在Web服务器停止之后才停止, 关闭期间仍在处理的请求写入的日志不会丢失
+ */
+@Component
+public class LogPublisher implements SmartLifecycle {
+    private static final String EXCHANGE = "amq.topic";
+    private static final String ROUTING_KEY = "insight.log";
+    private static final int PHASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final RabbitTemplate template;
+    private final BlockingQueue<Log> buffer;
+    private final int batchSize;
+    private final OverflowPolicy overflow;
+    private final boolean confirm;
+    private final long confirmTimeout;
+    private final Counter dropped;
+    private final Counter failed;
+    private volatile boolean running;
+    private Thread worker;
+
+    /**
+     * 缓冲区已满时的处理策略
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * 丢弃新日志
+         */
+        DROP_NEWEST,
+
+        /**
+         * 丢弃最早的日志
+         */
+        DROP_OLDEST,
+
+        /**
+         * 由请求线程同步发送
+         */
+        CALLER_RUNS
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param template       RabbitTemplate
+     * @param registry       MeterRegistry
+     * @param capacity       缓冲区容量
+     * @param batchSize      每批发送数量
+     * @param overflow       缓冲区已满时的处理策略
+     * @param confirm        是否等待发布确认(需设置spring.rabbitmq.publisher-confirm-type=simple)
+     * @param confirmTimeout 发布确认超时毫秒数
+     */
+    public LogPublisher(RabbitTemplate template, MeterRegistry registry,
+                        @Value("${insight.log.publisher.capacity:10000}") int capacity,
+                        @Value("${insight.log.publisher.batch-size:100}") int batchSize,
+                        @Value("${insight.log.publisher.overflow:DROP_NEWEST}") OverflowPolicy overflow,
+                        @Value("${insight.log.publisher.confirm:false}") boolean confirm,
+                        @Value("${insight.log.publisher.confirm-timeout:5000}") long confirmTimeout) {
+        this.template = template;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.overflow = overflow;
+        this.confirm = confirm;
+        this.confirmTimeout = confirmTimeout;
+        this.dropped = Counter.builder("insight.log.publisher.dropped").description("缓冲区已满时丢弃的日志数量").register(registry);
+        this.failed = Counter.builder("insight.log.publisher.failed").description("发送失败的日志数量").register(registry);
+        Gauge.builder("insight.log.publisher.depth", buffer, BlockingQueue::size).description("缓冲区中待发送的日志数量").register(registry);
+    }
+
+    /**
+     * 发布日志, 发布器未运行时由调用线程同步发送
+     *
+     * @param log 日志
+     */
+    public void publish(Log log) {
+        if (!running) {
+            send(List.of(log));
+            return;
+        }
+
+        if (buffer.offer(log)) {
+            return;
+        }
+
+        switch (overflow) {
+            case DROP_OLDEST -> {
+                if (buffer.poll() != null) {
+                    dropped.increment();
+                }
+
+                if (!buffer.offer(log)) {
+                    dropped.increment();
+                }
+            }
+            case CALLER_RUNS -> send(List.of(log));
+            default -> dropped.increment();
+        }
+    }
+
+    /**
+     * 后台发送循环, 停止后发送完缓冲区中剩余的日志再退出
+     */
+    private void drain() {
+        var batch = new ArrayList<Log>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                var first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                send(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 在同一通道上发送一批日志, 并等待发布确认
+     *
+     * @param logs 日志集合
+     */
+    private void send(List<Log> logs) {
+        try {
+            template.invoke(operations -> {
+                for (var log : logs) {
+                    operations.convertAndSend(EXCHANGE, ROUTING_KEY, log);
+                }
+
+                if (confirm) {
+                    operations.waitForConfirmsOrDie(confirmTimeout);
+                }
+
+                return null;
+            });
+        } catch (Exception ex) {
+            failed.increment(logs.size());
+            logger.error("发送操作日志失败, 共{}条: {}", logs.size(), ex.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = new Thread(this::drain, "log-publisher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+
+        try {
+            worker.join(confirmTimeout + 1000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        var rest = new ArrayList<Log>();
+        buffer.drainTo(rest);
+        if (!rest.isEmpty()) {
+            send(rest);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 低于Web服务器启停的阶段, 关闭时在Web服务器停止接收和处理请求之后再停止
+     *
+     * @return 生命周期阶段
+     */
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
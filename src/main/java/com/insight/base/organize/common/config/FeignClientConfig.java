@@ -2,6 +2,7 @@ package com.insight.base.organize.common.config;
 
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -13,10 +14,19 @@ import org.springframework.web.context.request.ServletRequestAttributes;
  */
 @Configuration
 public class FeignClientConfig implements RequestInterceptor {
-    private static final String REGULAR = "fingerprint|requestid|logininfo";
+    private final String[] headers;
 
     /**
-     * 应用配置
+     * 构造方法
+     *
+     * @param headers 需要传递的请求头名称
+     */
+    public FeignClientConfig(@Value("${insight.feign.headers:fingerprint,requestId,loginInfo}") String[] headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * 应用配置, 按名称直接读取需要传递的请求头(Servlet请求头名称不区分大小写)
      *
      * @param template RequestTemplate
      */
@@ -28,12 +38,10 @@ public class FeignClientConfig implements RequestInterceptor {
         }
 
         var request = requestAttributes.getRequest();
-        var headers = request.getHeaderNames();
-        while (headers.hasMoreElements()) {
-            var name = headers.nextElement();
-            if (name.toLowerCase().matches(REGULAR)) {
-                var values = request.getHeader(name);
-                template.header(name, values);
+        for (var name : headers) {
+            var value = request.getHeader(name);
+            if (value != null) {
+                template.header(name, value);
             }
         }
     }
@@ -0,0 +1,114 @@
+package com.insight.base.organize.common.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 限制并发连接数的数据源
+ * 虚拟线程不再以线程池大小限制并发, 此数据源在取得数据库连接时取得许可, 在连接关闭时释放许可.
+ * 只有访问数据库的代码才会等待许可, 读缓存、调用远程服务等不占用连接的请求不受限制.
+ */
+public class LimitedDataSource extends DelegatingDataSource {
+    private final Semaphore permits;
+    private final long timeout;
+
+    /**
+     * 构造方法
+     *
+     * @param dataSource 目标数据源
+     * @param permits    最大并发连接数
+     * @param timeout    等待许可的超时毫秒数
+     */
+    public LimitedDataSource(DataSource dataSource, int permits, long timeout) {
+        super(dataSource);
+        this.permits = new Semaphore(permits, true);
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return wrap(super.getConnection());
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return wrap(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * 等待许可, 超时后抛出异常
+     *
+     * @throws SQLException 等待超时或被中断
+     */
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("服务繁忙,请稍后重试");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("等待数据库连接被中断", ex);
+        }
+    }
+
+    /**
+     * 包装数据库连接, 连接首次关闭时释放许可
+     *
+     * @param connection 数据库连接
+     * @return 包装后的数据库连接
+     */
+    private Connection wrap(Connection connection) {
+        var released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                }
+            }
+
+            if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                try {
+                    connection.close();
+                } finally {
+                    permits.release();
+                }
+
+                return null;
+            }
+
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package com.insight.base.organize.common.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.insight.utils.Json;
+import com.insight.utils.pojo.auth.LoginInfo;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.MissingRequestHeaderException;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.time.Duration;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 用户关键信息参数解析器
+ * 从loginInfo请求头解析LoginInfo类型的控制器参数. 同一会话的请求头内容不变, 因此以请求头原文为键缓存解析结果,
+ * 避免每个请求重复进行Base64解码和JSON解析.
+ */
+public class LoginInfoResolver implements HandlerMethodArgumentResolver {
+    private static final String HEADER_NAME = "loginInfo";
+    private final Cache<String, LoginInfo> cache;
+
+    /**
+     * 构造方法
+     *
+     * @param size   最大缓存数量
+     * @param expire 缓存过期秒数
+     */
+    public LoginInfoResolver(long size, long expire) {
+        cache = Caffeine.newBuilder().maximumSize(size).expireAfterAccess(Duration.ofSeconds(expire)).build();
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return LoginInfo.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public LoginInfo resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest,
+                                     WebDataBinderFactory binderFactory) throws MissingRequestHeaderException {
+        var header = webRequest.getHeader(HEADER_NAME);
+        if (header == null || header.isEmpty()) {
+            throw new MissingRequestHeaderException(HEADER_NAME, parameter);
+        }
+
+        return cache.get(header, h -> Json.toBeanFromBase64(h, LoginInfo.class));
+    }
+}
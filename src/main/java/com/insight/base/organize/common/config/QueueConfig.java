@@ -13,15 +13,21 @@ import org.springframework.context.annotation.Configuration;
 public class QueueConfig {
     private final static int QUEUE_EXPIRATION = 1000 * 300;
 
+    /**
+     * 第一级/第二级延时队列的消息过期时间
+     */
+    private final static int FIRST_EXPIRATION = 1000 * 10;
+    private final static int SECOND_EXPIRATION = 1000 * 60;
+
     /**
      * exchange name
      */
-    private final static String TOPIC_EXCHANGE_NAME = "amq.topic";
+    public final static String TOPIC_EXCHANGE_NAME = "amq.topic";
 
     /**
      * process queue
      */
-    private final static String PROCESS_QUEUE_NAME = "insight.organize";
+    public final static String PROCESS_QUEUE_NAME = "insight.organize";
 
     /**
      * dlx exchange name
@@ -33,6 +39,21 @@ public class QueueConfig {
      */
     public final static String DELAY_QUEUE_NAME = "dlx.insight.organize";
 
+    /**
+     * first delay queue
+     */
+    public final static String FIRST_DELAY_QUEUE_NAME = "dlx.insight.organize.first";
+
+    /**
+     * second delay queue
+     */
+    public final static String SECOND_DELAY_QUEUE_NAME = "dlx.insight.organize.second";
+
+    /**
+     * parking queue
+     */
+    public final static String PARKING_QUEUE_NAME = "parking.insight.organize";
+
     /**
      * dlx exchange
      *
@@ -60,11 +81,37 @@ public class QueueConfig {
      */
     @Bean
     public Queue delayQueue() {
-        return QueueBuilder.durable(DELAY_QUEUE_NAME)
-                .withArgument("x-dead-letter-exchange", TOPIC_EXCHANGE_NAME)
-                .withArgument("x-dead-letter-routing-key", PROCESS_QUEUE_NAME)
-                .withArgument("x-message-ttl", QUEUE_EXPIRATION)
-                .build();
+        return delayQueue(DELAY_QUEUE_NAME, QUEUE_EXPIRATION);
+    }
+
+    /**
+     * first delay queue
+     *
+     * @return Queue
+     */
+    @Bean
+    public Queue firstDelayQueue() {
+        return delayQueue(FIRST_DELAY_QUEUE_NAME, FIRST_EXPIRATION);
+    }
+
+    /**
+     * second delay queue
+     *
+     * @return Queue
+     */
+    @Bean
+    public Queue secondDelayQueue() {
+        return delayQueue(SECOND_DELAY_QUEUE_NAME, SECOND_EXPIRATION);
+    }
+
+    /**
+     * parking queue, 超出重试次数的消息在此等待人工处理
+     *
+     * @return Queue
+     */
+    @Bean
+    public Queue parkingQueue() {
+        return QueueBuilder.durable(PARKING_QUEUE_NAME).build();
     }
 
     /**
@@ -89,6 +136,42 @@ public class QueueConfig {
         return BindingBuilder.bind(delayQueue).to(delayExchange).with(DELAY_QUEUE_NAME);
     }
 
+    /**
+     * 将延时交换机绑定到第一级延时队列
+     *
+     * @param firstDelayQueue Queue
+     * @param delayExchange   DirectExchange
+     * @return Binding
+     */
+    @Bean
+    public Binding firstDlxBinding(Queue firstDelayQueue, DirectExchange delayExchange) {
+        return BindingBuilder.bind(firstDelayQueue).to(delayExchange).with(FIRST_DELAY_QUEUE_NAME);
+    }
+
+    /**
+     * 将延时交换机绑定到第二级延时队列
+     *
+     * @param secondDelayQueue Queue
+     * @param delayExchange    DirectExchange
+     * @return Binding
+     */
+    @Bean
+    public Binding secondDlxBinding(Queue secondDelayQueue, DirectExchange delayExchange) {
+        return BindingBuilder.bind(secondDelayQueue).to(delayExchange).with(SECOND_DELAY_QUEUE_NAME);
+    }
+
+    /**
+     * 将延时交换机绑定到停放队列
+     *
+     * @param parkingQueue  Queue
+     * @param delayExchange DirectExchange
+     * @return Binding
+     */
+    @Bean
+    public Binding parkingBinding(Queue parkingQueue, DirectExchange delayExchange) {
+        return BindingBuilder.bind(parkingQueue).to(delayExchange).with(PARKING_QUEUE_NAME);
+    }
+
     /**
      * 将交换机绑定到实际消费队列
      *
@@ -100,4 +183,19 @@ public class QueueConfig {
     public Binding defaultBinding(Queue processQueue, TopicExchange topicExchange) {
         return BindingBuilder.bind(processQueue).to(topicExchange).with(PROCESS_QUEUE_NAME);
     }
+
+    /**
+     * 创建延时队列, 消息过期后转回实际消费队列
+     *
+     * @param name       队列名称
+     * @param expiration 消息过期毫秒数
+     * @return Queue
+     */
+    private static Queue delayQueue(String name, int expiration) {
+        return QueueBuilder.durable(name)
+                .withArgument("x-dead-letter-exchange", TOPIC_EXCHANGE_NAME)
+                .withArgument("x-dead-letter-routing-key", PROCESS_QUEUE_NAME)
+                .withArgument("x-message-ttl", expiration)
+                .build();
+    }
 }
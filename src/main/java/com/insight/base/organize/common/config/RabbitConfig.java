@@ -1,10 +1,15 @@
 package com.insight.base.organize.common.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -21,6 +26,31 @@ public class RabbitConfig implements InitializingBean {
         return new Jackson2JsonMessageConverter(objectMapper);
     }
 
+    /**
+     * 批量消费的监听容器工厂, 累计batchSize条消息或等待receiveTimeout毫秒后交付一批消息, 由监听方法手动确认
+     *
+     * @param configurer        SimpleRabbitListenerContainerFactoryConfigurer
+     * @param connectionFactory ConnectionFactory
+     * @param batchSize         每批消息数量
+     * @param receiveTimeout    等待消息的超时毫秒数
+     * @return SimpleRabbitListenerContainerFactory
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchListenerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+                                                                     @Value("${insight.organize.listener.batch-size:100}") int batchSize,
+                                                                     @Value("${insight.organize.listener.receive-timeout:200}") long receiveTimeout) {
+        var factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize);
+        factory.setReceiveTimeout(receiveTimeout);
+
+        return factory;
+    }
+
     @Override
     public void afterPropertiesSet() {
         final RabbitTemplate rabbitTemplate = new RabbitTemplate();
@@ -0,0 +1,33 @@
+package com.insight.base.organize.common.config;
+
+import com.insight.base.organize.common.OrganizeCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark Redis配置
+ */
+@Configuration
+public class RedisConfig {
+
+    /**
+     * 订阅组织机构缓存清除频道的监听容器
+     *
+     * @param connectionFactory RedisConnectionFactory
+     * @param cache             组织机构缓存
+     * @return RedisMessageListenerContainer
+     */
+    @Bean
+    public RedisMessageListenerContainer organizeEvictListenerContainer(RedisConnectionFactory connectionFactory, OrganizeCache cache) {
+        var container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cache, new ChannelTopic(OrganizeCache.EVICT_TOPIC));
+
+        return container;
+    }
+}
@@ -0,0 +1,58 @@
+package com.insight.base.organize.common.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.boot.web.embedded.undertow.UndertowDeploymentInfoCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Executors;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 虚拟线程配置, 由spring.threads.virtual.enabled开启
+ * Spring Boot已为异步任务和RabbitMQ监听容器启用虚拟线程, 这里将Undertow的Servlet请求处理也交由虚拟线程执行,
+ * 并在取得数据库连接时限制并发数.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class ThreadConfig {
+
+    /**
+     * 以虚拟线程执行Servlet请求, IO线程仍由Undertow的XNIO工作线程负责
+     *
+     * @return UndertowDeploymentInfoCustomizer
+     */
+    @Bean
+    public UndertowDeploymentInfoCustomizer virtualThreadDeploymentCustomizer() {
+        return deploymentInfo -> deploymentInfo.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * 以LimitedDataSource包装数据源, 限制同时持有数据库连接的线程数
+     *
+     * @param poolSize 数据库连接池大小
+     * @param permits  最大并发连接数, 为0时取数据库连接池大小
+     * @param timeout  等待许可的超时毫秒数
+     * @return BeanPostProcessor
+     */
+    @Bean
+    public static BeanPostProcessor connectionLimiter(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                                      @Value("${insight.organize.concurrency.permits:0}") int permits,
+                                                      @Value("${insight.organize.concurrency.timeout:3000}") long timeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof LimitedDataSource)) {
+                    return new LimitedDataSource(dataSource, permits > 0 ? permits : poolSize, timeout);
+                }
+
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.insight.base.organize.common.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark Web配置
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final long loginCacheSize;
+    private final long loginCacheExpire;
+
+    /**
+     * 构造方法
+     *
+     * @param size   用户关键信息最大缓存数量
+     * @param expire 用户关键信息缓存过期秒数
+     */
+    public WebConfig(@Value("${insight.organize.login-cache.size:10000}") long size,
+                     @Value("${insight.organize.login-cache.expire:600}") long expire) {
+        this.loginCacheSize = size;
+        this.loginCacheExpire = expire;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new LoginInfoResolver(loginCacheSize, loginCacheExpire));
+    }
+}
@@ -0,0 +1,24 @@
+package com.insight.base.organize.common.dto;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 分页查询的总数统计方式
+ */
+public enum CountMode {
+
+    /**
+     * 每次精确统计
+     */
+    EXACT,
+
+    /**
+     * 精确统计并短时缓存, 成员变更时清除
+     */
+    CACHED,
+
+    /**
+     * 按成员关系估算, 忽略用户过滤条件
+     */
+    ESTIMATED
+}
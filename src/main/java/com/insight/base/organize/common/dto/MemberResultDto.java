@@ -0,0 +1,37 @@
+package com.insight.base.organize.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 成员变更结果DTO
+ */
+public class MemberResultDto extends BaseXo {
+
+    /**
+     * 新增的成员数量
+     */
+    private Integer added;
+
+    /**
+     * 已存在或重复而跳过的成员数量
+     */
+    private Integer skipped;
+
+    public Integer getAdded() {
+        return added;
+    }
+
+    public void setAdded(Integer added) {
+        this.added = added;
+    }
+
+    public Integer getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(Integer skipped) {
+        this.skipped = skipped;
+    }
+}
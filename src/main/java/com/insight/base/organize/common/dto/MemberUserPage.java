@@ -0,0 +1,39 @@
+package com.insight.base.organize.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+import java.util.List;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 游标分页的组织机构成员DTO
+ */
+public class MemberUserPage extends BaseXo {
+
+    /**
+     * 本页成员用户集合
+     */
+    private List<MemberUserDto> list;
+
+    /**
+     * 下一页游标, 没有下一页时为空
+     */
+    private String next;
+
+    public List<MemberUserDto> getList() {
+        return list;
+    }
+
+    public void setList(List<MemberUserDto> list) {
+        this.list = list;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
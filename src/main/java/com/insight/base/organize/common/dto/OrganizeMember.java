@@ -0,0 +1,37 @@
+package com.insight.base.organize.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 组织机构成员关系实体类
+ */
+public class OrganizeMember extends BaseXo {
+
+    /**
+     * 组织机构ID
+     */
+    private Long postId;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public void setPostId(Long postId) {
+        this.postId = postId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+}
@@ -0,0 +1,50 @@
+package com.insight.base.organize.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 组织机构移动DTO
+ */
+public class OrganizeMoveDto extends BaseXo {
+
+    /**
+     * 组织机构ID
+     */
+    private Long id;
+
+    /**
+     * 新上级节点ID, 为空时移动为顶级节点
+     */
+    private Long parentId;
+
+    /**
+     * 新序号, 为空时保持原序号
+     */
+    private Integer index;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public void setIndex(Integer index) {
+        this.index = index;
+    }
+}
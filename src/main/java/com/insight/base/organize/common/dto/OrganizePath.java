@@ -0,0 +1,50 @@
+package com.insight.base.organize.common.dto;
+
+import com.insight.utils.pojo.base.BaseXo;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 组织机构祖先索引实体类
+ */
+public class OrganizePath extends BaseXo {
+
+    /**
+     * 上级节点ID
+     */
+    private Long ancestorId;
+
+    /**
+     * 下级节点ID
+     */
+    private Long descendantId;
+
+    /**
+     * 层级距离:0.节点自身
+     */
+    private Integer depth;
+
+    public Long getAncestorId() {
+        return ancestorId;
+    }
+
+    public void setAncestorId(Long ancestorId) {
+        this.ancestorId = ancestorId;
+    }
+
+    public Long getDescendantId() {
+        return descendantId;
+    }
+
+    public void setDescendantId(Long descendantId) {
+        this.descendantId = descendantId;
+    }
+
+    public Integer getDepth() {
+        return depth;
+    }
+
+    public void setDepth(Integer depth) {
+        this.depth = depth;
+    }
+}
@@ -1,8 +1,10 @@
 package com.insight.base.organize.common.mapper;
 
 import com.insight.base.organize.common.dto.Organize;
-import org.apache.ibatis.annotations.Insert;
-import org.apache.ibatis.annotations.Mapper;
+import com.insight.base.organize.common.dto.OrganizePath;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
 
 /**
  * @author 宣炳刚
@@ -20,4 +22,45 @@ public interface CoreMapper {
     @Insert("insert ibo_organize(id, tenant_id, parent_id, type, `index`, code, `name`, alias, full_name, remark, invalid, creator, creator_id, created_time) values " +
             "(#{id}, #{tenantId}, #{parentId}, #{type}, #{index}, #{code}, #{name}, #{alias}, #{fullName}, #{remark}, #{invalid}, #{creator}, #{creatorId}, #{createdTime});")
     void addOrganize(Organize organize);
+
+    /**
+     * 新增组织机构祖先索引
+     *
+     * @param organize 组织机构DTO
+     * @return 写入行数, 上级节点没有祖先索引时只写入节点自身一行
+     */
+    @Insert("insert ibo_organize_path(ancestor_id, descendant_id, depth) select ancestor_id, #{id}, depth + 1 from ibo_organize_path " +
+            "where descendant_id = #{parentId} union all select #{id}, #{id}, 0;")
+    int addOrganizePath(Organize organize);
+
+    /**
+     * 批量新增组织机构
+     *
+     * @param list 组织机构DTO集合
+     */
+    @Insert("<script>insert ibo_organize(id, tenant_id, parent_id, type, `index`, code, `name`, alias, full_name, remark, invalid, creator, creator_id, created_time) values " +
+            "<foreach collection = \"list\" item = \"item\" index = \"index\" separator = \",\">" +
+            "(#{item.id}, #{item.tenantId}, #{item.parentId}, #{item.type}, #{item.index}, #{item.code}, #{item.name}, #{item.alias}, #{item.fullName}, " +
+            "#{item.remark}, #{item.invalid}, #{item.creator}, #{item.creatorId}, #{item.createdTime})</foreach>;</script>")
+    void addOrganizes(@Param("list") List<Organize> list);
+
+    /**
+     * 获取节点的全部祖先索引
+     *
+     * @param ids 节点ID集合
+     * @return 祖先索引集合
+     */
+    @Select("<script>select ancestor_id, descendant_id, depth from ibo_organize_path where descendant_id in (" +
+            "<foreach collection = \"list\" item = \"item\" index = \"index\" separator = \",\">#{item}</foreach>);</script>")
+    List<OrganizePath> getPaths(@Param("list") List<Long> ids);
+
+    /**
+     * 批量新增祖先索引
+     *
+     * @param list 祖先索引集合
+     */
+    @Insert("<script>insert ibo_organize_path(ancestor_id, descendant_id, depth) values " +
+            "<foreach collection = \"list\" item = \"item\" index = \"index\" separator = \",\">" +
+            "(#{item.ancestorId}, #{item.descendantId}, #{item.depth})</foreach>;</script>")
+    void addPaths(@Param("list") List<OrganizePath> list);
 }
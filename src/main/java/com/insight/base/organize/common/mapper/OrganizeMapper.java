@@ -3,8 +3,13 @@ package com.insight.base.organize.common.mapper;
 import com.insight.base.organize.common.dto.MemberUserDto;
 import com.insight.base.organize.common.dto.Organize;
 import com.insight.base.organize.common.dto.OrganizeListDto;
+import com.insight.base.organize.common.dto.OrganizeMember;
+import com.insight.base.organize.common.dto.OrganizeMoveDto;
 import com.insight.utils.pojo.base.Search;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.List;
 
@@ -25,15 +30,25 @@ public interface OrganizeMapper {
             "tenant_id = #{tenantId} order by type, `index`;")
     List<OrganizeListDto> getOrganizes(Long tenantId);
 
+    /**
+     * 以游标方式逐行读取组织机构列表
+     *
+     * @param tenantId 租户ID
+     * @return 组织机构游标
+     */
+    @Select("select id, parent_id, type, `index`, code, name, alias, full_name from ibo_organize where " +
+            "tenant_id = #{tenantId} order by type, `index`;")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<OrganizeListDto> getOrganizeCursor(Long tenantId);
+
     /**
      * 查询指定ID的机构的下级机构ID
      *
      * @param id 组织机构ID
      * @return 下级机构ID集合
      */
-    @Select("with recursive orgs as (select o.id, o.parent_id, o.type, o.code, o.name from ibo_organize o where o.id = #{id} " +
-            "union select p.id, p.parent_id, p.type, p.code, p.name from ibo_organize p join orgs s on s.id = p.parent_id) " +
-            "select * from orgs;")
+    @Select("select o.id, o.parent_id, o.type, o.code, o.name from ibo_organize_path p join ibo_organize o on o.id = p.descendant_id " +
+            "where p.ancestor_id = #{id};")
     List<OrganizeListDto> getSubOrganizes(long id);
 
     /**
@@ -45,6 +60,16 @@ public interface OrganizeMapper {
     @Select("select * from ibo_organize where id = #{id};")
     Organize getOrganize(Long id);
 
+    /**
+     * 批量获取组织机构详情
+     *
+     * @param ids 组织机构ID集合
+     * @return 组织机构详情集合
+     */
+    @Select("<script>select * from ibo_organize where id in (" +
+            "<foreach collection = \"list\" item = \"item\" index = \"index\" separator = \",\">#{item}</foreach>);</script>")
+    List<Organize> getOrganizesByIds(@Param("list") List<Long> ids);
+
     /**
      * 获取下属组织机构数量
      *
@@ -64,12 +89,70 @@ public interface OrganizeMapper {
     void updateOrganize(Organize organize);
 
     /**
-     * 删除组织机构
+     * 更新组织机构的上级节点及序号
+     *
+     * @param move 组织机构移动DTO
+     */
+    @Update("update ibo_organize set parent_id = #{parentId}, `index` = ifnull(#{index}, `index`) where id = #{id};")
+    void updateParent(OrganizeMoveDto move);
+
+    /**
+     * 删除子树与原上级节点之间的祖先索引
+     *
+     * @param id 子树根节点ID
+     */
+    @Delete("delete p from ibo_organize_path p join ibo_organize_path d on d.descendant_id = p.descendant_id and d.ancestor_id = #{id} " +
+            "left join ibo_organize_path x on x.ancestor_id = #{id} and x.descendant_id = p.ancestor_id where x.ancestor_id is null;")
+    void deletePaths(Long id);
+
+    /**
+     * 建立子树与新上级节点之间的祖先索引
+     *
+     * @param id       子树根节点ID
+     * @param parentId 新上级节点ID
+     */
+    @Insert("insert ibo_organize_path(ancestor_id, descendant_id, depth) select a.ancestor_id, d.descendant_id, a.depth + d.depth + 1 " +
+            "from ibo_organize_path a join ibo_organize_path d on d.ancestor_id = #{id} where a.descendant_id = #{parentId};")
+    void addPaths(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    /**
+     * 获取子树的节点ID(包括节点自身)
      *
      * @param id 组织机构ID
+     * @return 节点ID集合
+     */
+    @Select("select descendant_id from ibo_organize_path where ancestor_id = #{id};")
+    List<Long> getSubIds(Long id);
+
+    /**
+     * 批量删除组织机构成员
+     *
+     * @param ids 组织机构ID集合
+     * @return 删除行数
+     */
+    @Delete("<script>delete from ibo_organize_member where post_id in (" +
+            "<foreach collection = \"list\" item = \"item\" index = \"index\" separator = \",\">#{item}</foreach>);</script>")
+    int deleteMembers(@Param("list") List<Long> ids);
+
+    /**
+     * 批量删除组织机构的祖先索引
+     *
+     * @param ids 组织机构ID集合
+     * @return 删除行数
+     */
+    @Delete("<script>delete from ibo_organize_path where descendant_id in (" +
+            "<foreach collection = \"list\" item = \"item\" index = \"index\" separator = \",\">#{item}</foreach>);</script>")
+    int deleteOrganizePaths(@Param("list") List<Long> ids);
+
+    /**
+     * 批量删除组织机构
+     *
+     * @param ids 组织机构ID集合
+     * @return 删除行数
      */
-    @Delete("delete o, m from ibo_organize o left join ibo_organize_member m on m.post_id = o.id where o.id = #{id};")
-    void deleteRole(Long id);
+    @Delete("<script>delete from ibo_organize where id in (" +
+            "<foreach collection = \"list\" item = \"item\" index = \"index\" separator = \",\">#{item}</foreach>);</script>")
+    int deleteOrganizes(@Param("list") List<Long> ids);
 
     /**
      * 查询组织机构成员用户
@@ -77,25 +160,114 @@ public interface OrganizeMapper {
      * @param search 查询关键词
      * @return 组织机构成员用户集合
      */
-    @Select("<script>select u.id, u.code, u.name, u.account, u.mobile, r.role_ids, r.role_name, u.invalid, u.created_time " +
-            "from ibo_organize_member m join ibu_user u on u.id = m.user_id " +
+    @Select("<script>select u.id, u.code, u.name, u.account, u.mobile, " +
+            "(select group_concat(r.id order by r.id) from ibr_role_member rm join ibr_role r on r.id = rm.role_id where rm.member_id = u.id) as role_ids, " +
+            "(select group_concat(r.name order by r.id) from ibr_role_member rm join ibr_role r on r.id = rm.role_id where rm.member_id = u.id) as role_name, " +
+            "u.invalid, u.created_time from ibo_organize_member m join ibu_user u on u.id = m.user_id " +
             "<if test = 'keyword != null'>and (u.code = #{keyword} or u.account = #{keyword} or u.name like concat('%',#{keyword},'%')) </if>" +
             "<if test = 'invalid != null'>and u.invalid = #{invalid} </if>" +
-            "left join (select m.member_id, group_concat(r.id) as role_ids, group_concat(r.name) as role_name from ibr_role r " +
-            "join ibr_role_member m on m.role_id = r.id group by m.member_id) r on r.member_id = u.id " +
             "where m.post_id = #{id}</script>")
     List<MemberUserDto> getMemberUsers(Search search);
 
+    /**
+     * 统计组织机构成员用户数量
+     *
+     * @param search 查询关键词
+     * @return 成员用户数量
+     */
+    @Select("<script>select count(*) from ibo_organize_member m join ibu_user u on u.id = m.user_id " +
+            "<if test = 'keyword != null'>and (u.code = #{keyword} or u.account = #{keyword} or u.name like concat('%',#{keyword},'%')) </if>" +
+            "<if test = 'invalid != null'>and u.invalid = #{invalid} </if>" +
+            "where m.post_id = #{id}</script>")
+    long countMemberUsers(Search search);
+
+    /**
+     * 统计组织机构成员关系数量
+     *
+     * @param id 组织机构ID
+     * @return 成员关系数量
+     */
+    @Select("select count(*) from ibo_organize_member where post_id = #{id};")
+    long countMembers(Long id);
+
+    /**
+     * 按用户ID游标查询组织机构成员用户, 沿(post_id, user_id)索引顺序读取
+     *
+     * @param search 查询关键词
+     * @param userId 游标中的用户ID, 为空时从第一页开始
+     * @param size   读取数量
+     * @return 组织机构成员用户集合
+     */
+    @Select("<script>select u.id, u.code, u.name, u.account, u.mobile, " +
+            "(select group_concat(r.id order by r.id) from ibr_role_member rm join ibr_role r on r.id = rm.role_id where rm.member_id = u.id) as role_ids, " +
+            "(select group_concat(r.name order by r.id) from ibr_role_member rm join ibr_role r on r.id = rm.role_id where rm.member_id = u.id) as role_name, " +
+            "u.invalid, u.created_time from ibo_organize_member m join ibu_user u on u.id = m.user_id " +
+            "<if test = 'search.keyword != null'>and (u.code = #{search.keyword} or u.account = #{search.keyword} or u.name like concat('%',#{search.keyword},'%')) </if>" +
+            "<if test = 'search.invalid != null'>and u.invalid = #{search.invalid} </if>" +
+            "where m.post_id = #{search.id} " +
+            "<if test = 'userId != null'>and m.user_id &gt; #{userId} </if>" +
+            "order by m.user_id limit #{size}</script>")
+    List<MemberUserDto> seekMemberUsers(@Param("search") Search search, @Param("userId") Long userId, @Param("size") int size);
+
+    /**
+     * 逐行读取多个组织机构的成员用户ID
+     *
+     * @param ids     组织机构ID集合
+     * @param handler 用户ID处理器
+     */
+    @Select("<script>select user_id from ibo_organize_member where post_id in (" +
+            "<foreach collection = \"list\" item = \"item\" index = \"index\" separator = \",\">#{item}</foreach>);</script>")
+    @ResultType(Long.class)
+    void getMemberIds(@Param("list") List<Long> ids, ResultHandler<Long> handler);
+
+    /**
+     * 查询用户所属的组织机构
+     *
+     * @param ids 用户ID集合
+     * @return 成员关系集合
+     */
+    @Select("<script>select post_id, user_id from ibo_organize_member where user_id in (" +
+            "<foreach collection = \"list\" item = \"item\" index = \"index\" separator = \",\">#{item}</foreach>);</script>")
+    List<OrganizeMember> getUserPosts(@Param("list") List<Long> ids);
+
+    /**
+     * 逐行读取指定ID中符合查询条件的用户ID
+     *
+     * @param ids     用户ID集合
+     * @param search  查询实体类
+     * @param handler 用户ID处理器
+     */
+    @Select("<script>select u.id from ibu_user u where u.id in (" +
+            "<foreach collection = \"list\" item = \"item\" index = \"index\" separator = \",\">#{item}</foreach>) " +
+            "<if test = 'search.keyword != null'>and (u.code = #{search.keyword} or u.account = #{search.keyword} or u.name like concat('%',#{search.keyword},'%')) </if>" +
+            "<if test = 'search.invalid != null'>and u.invalid = #{search.invalid} </if></script>")
+    @ResultType(Long.class)
+    void filterUserIds(@Param("list") List<Long> ids, @Param("search") Search search, ResultHandler<Long> handler);
+
+    /**
+     * 查询指定ID的用户
+     *
+     * @param ids 用户ID集合
+     * @return 用户集合
+     */
+    @Select("<script>select u.id, u.code, u.name, u.account, u.mobile, " +
+            "(select group_concat(r.id order by r.id) from ibr_role_member rm join ibr_role r on r.id = rm.role_id where rm.member_id = u.id) as role_ids, " +
+            "(select group_concat(r.name order by r.id) from ibr_role_member rm join ibr_role r on r.id = rm.role_id where rm.member_id = u.id) as role_name, " +
+            "u.invalid, u.created_time from ibu_user u where u.id in (" +
+            "<foreach collection = \"list\" item = \"item\" index = \"index\" separator = \",\">#{item}</foreach>) order by u.id;</script>")
+    List<MemberUserDto> getUsers(@Param("list") List<Long> ids);
+
     /**
      * 添加组织机构成员
      *
      * @param id      组织机构ID
      * @param members 组织机构成员ID集合
+     * @return 实际新增的成员数量, 已存在的成员被忽略
      */
-    @Insert("<script>insert ibo_organize_member (post_id, user_id) values " +
+    @Insert("<script>insert ignore ibo_organize_member (post_id, user_id) values " +
             "<foreach collection = \"list\" item = \"item\" index = \"index\" separator = \",\">" +
             "(#{id}, #{item})</foreach>;</script>")
-    void addMembers(@Param("id") Long id, @Param("list") List<Long> members);
+    int addMembers(@Param("id") Long id, @Param("list") List<Long> members);
 
     /**
      * 移除组织机构成员
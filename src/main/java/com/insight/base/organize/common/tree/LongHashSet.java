@@ -0,0 +1,126 @@
+package com.insight.base.organize.common.tree;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark long的开放寻址哈希集合, 元素不装箱
+ */
+public final class LongHashSet {
+    private long[] keys;
+    private int mask;
+    private int size;
+    private boolean hasZero;
+
+    /**
+     * 构造方法
+     *
+     * @param expected 预期元素数量
+     */
+    public LongHashSet(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param key 元素
+     * @return 元素此前不存在时返回true
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            if (hasZero) {
+                return false;
+            }
+
+            hasZero = true;
+            size++;
+            return true;
+        }
+
+        int slot = slot(keys, mask, key);
+        if (keys[slot] == key) {
+            return false;
+        }
+
+        keys[slot] = key;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+
+        return true;
+    }
+
+    /**
+     * 是否包含元素
+     *
+     * @param key 元素
+     * @return 是否包含
+     */
+    public boolean contains(long key) {
+        return key == 0 ? hasZero : keys[slot(keys, mask, key)] == key;
+    }
+
+    /**
+     * 元素数量
+     *
+     * @return 元素数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 转换为数组, 元素无序
+     *
+     * @return 元素数组
+     */
+    public long[] toArray() {
+        var array = new long[size];
+        int index = 0;
+        if (hasZero) {
+            array[index++] = 0;
+        }
+
+        for (long key : keys) {
+            if (key != 0) {
+                array[index++] = key;
+            }
+        }
+
+        return array;
+    }
+
+    /**
+     * 容量翻倍并重新散列
+     */
+    private void resize() {
+        var old = keys;
+        keys = new long[old.length * 2];
+        mask = keys.length - 1;
+        for (long key : old) {
+            if (key != 0) {
+                keys[slot(keys, mask, key)] = key;
+            }
+        }
+    }
+
+    /**
+     * 定位元素所在的槽位, 元素不存在时返回第一个空槽位
+     *
+     * @param keys 槽位数组
+     * @param mask 掩码
+     * @param key  元素(非0)
+     * @return 槽位
+     */
+    private static int slot(long[] keys, int mask, long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+}
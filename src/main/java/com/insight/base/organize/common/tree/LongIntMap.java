@@ -0,0 +1,87 @@
+package com.insight.base.organize.common.tree;
+
+import java.util.Arrays;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark long到int的开放寻址哈希表, 值不能为负数
+ */
+public final class LongIntMap {
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+    private int size;
+
+    /**
+     * 构造方法
+     *
+     * @param expected 预期元素数量
+     */
+    public LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(values, -1);
+    }
+
+    /**
+     * 写入键值, 键已存在时覆盖原值
+     *
+     * @param key   键
+     * @param value 值(非负)
+     */
+    public void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value不能为负数");
+        }
+
+        int slot = slot(key);
+        if (values[slot] < 0) {
+            if (size >= mask) {
+                throw new IllegalStateException("超出LongIntMap容量");
+            }
+
+            keys[slot] = key;
+            size++;
+        }
+
+        values[slot] = value;
+    }
+
+    /**
+     * 读取键对应的值
+     *
+     * @param key 键
+     * @return 值, 键不存在时返回-1
+     */
+    public int get(long key) {
+        return values[slot(key)];
+    }
+
+    /**
+     * 元素数量
+     *
+     * @return 元素数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 定位键所在的槽位, 键不存在时返回第一个空槽位
+     *
+     * @param key 键
+     * @return 槽位
+     */
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (values[slot] >= 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+}
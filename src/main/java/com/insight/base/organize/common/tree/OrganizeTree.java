@@ -0,0 +1,364 @@
+package com.insight.base.organize.common.tree;
+
+import com.insight.base.organize.common.dto.OrganizeListDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author 宣炳刚
+ * @date 2024/12/20
+ * @remark 租户组织机构树的不可变快照
+ * 节点按先序排列并以并行数组存储, 节点i的子树为先序区间[i, ends[i]), 因此子树、祖先及从属判断都无需访问数据库,
+ * 也不为每个节点创建对象. 快照一经创建不再修改, 数据变更后整体重建替换(写时复制).
+ */
+public final class OrganizeTree {
+    private static final long NONE = 0L;
+    private static final int NULL = Integer.MIN_VALUE;
+    private final LongIntMap positions;
+    private final long[] ids;
+    private final long[] parentIds;
+    private final int[] parents;
+    private final int[] ends;
+    private final int[] types;
+    private final int[] indexes;
+    private final int[] rows;
+    private final String[] codes;
+    private final String[] names;
+    private final String[] aliases;
+    private final String[] fullNames;
+
+    /**
+     * 构造方法
+     *
+     * @param size 节点数量
+     */
+    private OrganizeTree(int size) {
+        positions = new LongIntMap(size);
+        ids = new long[size];
+        parentIds = new long[size];
+        parents = new int[size];
+        ends = new int[size];
+        types = new int[size];
+        indexes = new int[size];
+        rows = new int[size];
+        codes = new String[size];
+        names = new String[size];
+        aliases = new String[size];
+        fullNames = new String[size];
+    }
+
+    /**
+     * 由组织机构列表创建快照, 同级节点保持列表中的先后顺序
+     * 上级节点不在列表中的节点作为根节点; 无法从根节点到达的节点(环)被忽略
+     *
+     * @param list 组织机构列表
+     * @return 快照
+     */
+    public static OrganizeTree of(List<OrganizeListDto> list) {
+        int count = list.size();
+        var rows = new LongIntMap(count);
+        for (int i = 0; i < count; i++) {
+            rows.put(list.get(i).getId(), i);
+        }
+
+        // 以行号建立子节点链表
+        var parentRows = new int[count];
+        var firstChild = new int[count];
+        var lastChild = new int[count];
+        var nextSibling = new int[count];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+        var roots = new int[count];
+        int rootCount = 0;
+        for (int i = 0; i < count; i++) {
+            var parentId = list.get(i).getParentId();
+            int parent = parentId == null ? -1 : rows.get(parentId);
+            if (parent == i) {
+                parent = -1;
+            }
+
+            parentRows[i] = parent;
+            if (parent < 0) {
+                roots[rootCount++] = i;
+            } else if (firstChild[parent] < 0) {
+                firstChild[parent] = i;
+                lastChild[parent] = i;
+            } else {
+                nextSibling[lastChild[parent]] = i;
+                lastChild[parent] = i;
+            }
+        }
+
+        // 非递归先序遍历, 子节点逆序入栈以保持同级顺序
+        var order = new int[count];
+        var stack = new int[count];
+        int size = 0;
+        for (int r = 0; r < rootCount; r++) {
+            int top = 0;
+            stack[top++] = roots[r];
+            while (top > 0) {
+                int row = stack[--top];
+                order[size++] = row;
+
+                int first = top;
+                for (int c = firstChild[row]; c >= 0; c = nextSibling[c]) {
+                    stack[top++] = c;
+                }
+
+                for (int i = first, j = top - 1; i < j; i++, j--) {
+                    int swap = stack[i];
+                    stack[i] = stack[j];
+                    stack[j] = swap;
+                }
+            }
+        }
+
+        var tree = new OrganizeTree(size);
+        var rowToPos = new int[count];
+        Arrays.fill(rowToPos, -1);
+        for (int pos = 0; pos < size; pos++) {
+            rowToPos[order[pos]] = pos;
+        }
+
+        // 记录节点在原列表中的顺序, 以便按原顺序输出列表
+        for (int row = 0, n = 0; row < count; row++) {
+            if (rowToPos[row] >= 0) {
+                tree.rows[n++] = rowToPos[row];
+            }
+        }
+
+        // 逆先序处理时子节点先于上级节点, 可顺带汇总子树区间
+        for (int pos = size - 1; pos >= 0; pos--) {
+            int row = order[pos];
+            var dto = list.get(row);
+            int parent = parentRows[row] < 0 ? -1 : rowToPos[parentRows[row]];
+            tree.ids[pos] = dto.getId();
+            tree.parentIds[pos] = dto.getParentId() == null ? NONE : dto.getParentId();
+            tree.parents[pos] = parent;
+            tree.types[pos] = dto.getType() == null ? NULL : dto.getType();
+            tree.indexes[pos] = dto.getIndex() == null ? NULL : dto.getIndex();
+            tree.codes[pos] = dto.getCode();
+            tree.names[pos] = dto.getName();
+            tree.aliases[pos] = dto.getAlias();
+            tree.fullNames[pos] = dto.getFullName();
+            tree.positions.put(dto.getId(), pos);
+            if (tree.ends[pos] < pos + 1) {
+                tree.ends[pos] = pos + 1;
+            }
+
+            if (parent >= 0 && tree.ends[parent] < tree.ends[pos]) {
+                tree.ends[parent] = tree.ends[pos];
+            }
+        }
+
+        return tree;
+    }
+
+    /**
+     * 节点数量
+     *
+     * @return 节点数量
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * 获取节点的先序位置
+     *
+     * @param id 组织机构ID
+     * @return 先序位置, 不存在时返回-1
+     */
+    public int indexOf(long id) {
+        return positions.get(id);
+    }
+
+    /**
+     * 是否包含指定节点
+     *
+     * @param id 组织机构ID
+     * @return 是否包含
+     */
+    public boolean contains(long id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * 节点是否位于指定节点的子树中(包括节点自身)
+     *
+     * @param id         组织机构ID
+     * @param ancestorId 上级组织机构ID
+     * @return 是否从属于上级组织机构
+     */
+    public boolean isUnder(long id, long ancestorId) {
+        int node = indexOf(id);
+        int ancestor = indexOf(ancestorId);
+        return node >= 0 && ancestor >= 0 && node >= ancestor && node < ends[ancestor];
+    }
+
+    /**
+     * 获取子树的节点ID(包括节点自身), 按先序排列
+     *
+     * @param id 组织机构ID
+     * @return 节点ID集合, 节点不存在时返回空数组
+     */
+    public long[] getSubIds(long id) {
+        int pos = indexOf(id);
+        return pos < 0 ? new long[0] : Arrays.copyOfRange(ids, pos, ends[pos]);
+    }
+
+    /**
+     * 获取全部组织机构, 按创建快照时的列表顺序排列
+     *
+     * @return 组织机构集合
+     */
+    public List<OrganizeListDto> toList() {
+        var list = new ArrayList<OrganizeListDto>(rows.length);
+        for (int pos : rows) {
+            list.add(toDto(pos));
+        }
+
+        return list;
+    }
+
+    /**
+     * 获取子树的组织机构(包括节点自身), 按先序排列
+     *
+     * @param id 组织机构ID
+     * @return 组织机构集合, 节点不存在时返回空集合
+     */
+    public List<OrganizeListDto> getSubOrganizes(long id) {
+        int pos = indexOf(id);
+        if (pos < 0) {
+            return new ArrayList<>();
+        }
+
+        var list = new ArrayList<OrganizeListDto>(ends[pos] - pos);
+        for (int i = pos; i < ends[pos]; i++) {
+            list.add(toDto(i));
+        }
+
+        return list;
+    }
+
+    /**
+     * 获取从根节点到指定节点的上级链(包括节点自身)
+     *
+     * @param id 组织机构ID
+     * @return 组织机构集合, 节点不存在时返回空集合
+     */
+    public List<OrganizeListDto> getAncestors(long id) {
+        int pos = indexOf(id);
+        if (pos < 0) {
+            return new ArrayList<>();
+        }
+
+        int depth = 0;
+        for (int i = pos; i >= 0; i = parents[i]) {
+            depth++;
+        }
+
+        var chain = new OrganizeListDto[depth];
+        for (int i = pos; i >= 0; i = parents[i]) {
+            chain[--depth] = toDto(i);
+        }
+
+        return new ArrayList<>(Arrays.asList(chain));
+    }
+
+    /**
+     * 获取直接下级节点的ID, 按先序排列
+     * 在子树区间内逐个跳过下级节点的子树, 时间复杂度为下级节点数量
+     *
+     * @param id 组织机构ID
+     * @return 下级节点ID集合, 节点不存在时返回空数组
+     */
+    public long[] getChildIds(long id) {
+        int pos = indexOf(id);
+        if (pos < 0) {
+            return new long[0];
+        }
+
+        int count = 0;
+        for (int i = pos + 1; i < ends[pos]; i = ends[i]) {
+            count++;
+        }
+
+        var children = new long[count];
+        for (int i = pos + 1, n = 0; i < ends[pos]; i = ends[i]) {
+            children[n++] = ids[i];
+        }
+
+        return children;
+    }
+
+    /**
+     * 计算节点移动到新上级后的移动层级
+     * 沿新上级向上查找, 本批次移动中的节点以其新上级为准, 时间复杂度为新层级深度
+     *
+     * @param id       组织机构ID
+     * @param parentId 新上级节点ID, 为空时移动为顶级节点
+     * @param parents  本批次移动节点的新上级
+     * @return 新上级链中本批次移动节点的数量, 形成环路时返回-1
+     */
+    public int getMoveLevel(long id, Long parentId, Map<Long, Long> parents) {
+        int level = 0;
+        int steps = 0;
+        for (var node = parentId; node != null; node = parents.containsKey(node) ? parents.get(node) : getParentId(node)) {
+            if (node == id || ++steps > size()) {
+                return -1;
+            }
+
+            if (parents.containsKey(node)) {
+                level++;
+            }
+        }
+
+        return level;
+    }
+
+    /**
+     * 获取节点的上级节点ID
+     *
+     * @param id 组织机构ID
+     * @return 上级节点ID, 节点不存在或为根节点时返回null
+     */
+    public Long getParentId(long id) {
+        int pos = indexOf(id);
+        return pos < 0 || parents[pos] < 0 ? null : ids[parents[pos]];
+    }
+
+    /**
+     * 获取节点类型
+     *
+     * @param id 组织机构ID
+     * @return 节点类型, 节点不存在时返回null
+     */
+    public Integer getType(long id) {
+        int pos = indexOf(id);
+        return pos < 0 || types[pos] == NULL ? null : types[pos];
+    }
+
+    /**
+     * 将先序位置上的节点转换为DTO
+     *
+     * @param pos 先序位置
+     * @return 组织机构DTO
+     */
+    private OrganizeListDto toDto(int pos) {
+        var dto = new OrganizeListDto();
+        dto.setId(ids[pos]);
+        dto.setParentId(parentIds[pos] == NONE ? null : parentIds[pos]);
+        dto.setType(types[pos] == NULL ? null : types[pos]);
+        dto.setIndex(indexes[pos] == NULL ? null : indexes[pos]);
+        dto.setCode(codes[pos]);
+        dto.setName(names[pos]);
+        dto.setAlias(aliases[pos]);
+        dto.setFullName(fullNames[pos]);
+
+        return dto;
+    }
+}
@@ -1,19 +1,26 @@
 package com.insight.base.organize.manage;
 
 import com.insight.base.organize.common.client.LogClient;
-import com.insight.base.organize.common.client.LogServiceClient;
+import com.insight.base.organize.common.client.LogProxy;
+import com.insight.base.organize.common.dto.CountMode;
+import com.insight.base.organize.common.dto.MemberResultDto;
+import com.insight.base.organize.common.dto.MemberUserPage;
 import com.insight.base.organize.common.dto.OperateType;
 import com.insight.base.organize.common.dto.Organize;
 import com.insight.base.organize.common.dto.OrganizeListDto;
-import com.insight.utils.Json;
+import com.insight.base.organize.common.dto.OrganizeMoveDto;
 import com.insight.utils.pojo.auth.LoginInfo;
 import com.insight.utils.pojo.base.BusinessException;
 import com.insight.utils.pojo.base.Reply;
 import com.insight.utils.pojo.base.Search;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author 宣炳刚
@@ -24,16 +31,16 @@ import java.util.List;
 @RequestMapping("/base/organize")
 public class OrganizeController {
     private static final String BUSINESS = "Organize";
-    private final LogServiceClient client;
+    private final LogProxy client;
     private final OrganizeService service;
 
     /**
      * 构造方法
      *
-     * @param client  Feign客户端
+     * @param client  日志服务代理
      * @param service 自动注入的Service
      */
-    public OrganizeController(LogServiceClient client, OrganizeService service) {
+    public OrganizeController(LogProxy client, OrganizeService service) {
         this.client = client;
         this.service = service;
     }
@@ -41,18 +48,30 @@ public class OrganizeController {
     /**
      * 查询组织机构列表
      *
-     * @param loginInfo   用户关键信息
+     * @param info   用户关键信息
      * @param search 查询实体类
      * @return Reply
      */
     @GetMapping("/v1.0/organizes")
-    public List<OrganizeListDto> getOrganizes(@RequestHeader("loginInfo") String loginInfo, Search search) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
+    public List<OrganizeListDto> getOrganizes(LoginInfo info, Search search) {
         search.setTenantId(info.getTenantId());
 
         return service.getOrganizes(search);
     }
 
+    /**
+     * 以流方式输出组织机构列表, 响应格式与查询组织机构列表一致
+     *
+     * @param info 用户关键信息
+     * @return 组织机构列表输出流
+     */
+    @GetMapping("/v1.0/organizes/stream")
+    public ResponseEntity<StreamingResponseBody> streamOrganizes(LoginInfo info) {
+        Long tenantId = info.getTenantId();
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(stream -> service.writeOrganizes(tenantId, stream));
+    }
+
     /**
      * 获取组织机构详情
      *
@@ -64,50 +83,107 @@ public class OrganizeController {
         return service.getOrganize(id);
     }
 
+    /**
+     * 批量获取组织机构详情
+     *
+     * @param ids 组织机构ID集合
+     * @return 组织机构ID和详情的映射
+     */
+    @GetMapping("/v1.0/organizes/details")
+    public Map<Long, Organize> getOrganizes(@RequestParam List<Long> ids) {
+        return service.getOrganizes(ids);
+    }
+
+    /**
+     * 获取组织机构的上级链
+     *
+     * @param info 用户关键信息
+     * @param id   组织机构ID
+     * @return 从根节点到当前节点的组织机构集合
+     */
+    @GetMapping("/v1.0/organizes/{id}/ancestors")
+    public List<OrganizeListDto> getAncestors(LoginInfo info, @PathVariable Long id) {
+        return service.getAncestors(info.getTenantId(), id);
+    }
+
+    /**
+     * 批量获取组织机构的上级链
+     *
+     * @param info 用户关键信息
+     * @param ids  组织机构ID集合
+     * @return 组织机构ID和上级链的映射
+     */
+    @GetMapping("/v1.0/organizes/ancestors")
+    public Map<Long, List<OrganizeListDto>> getAncestors(LoginInfo info, @RequestParam List<Long> ids) {
+        return service.getAncestors(info.getTenantId(), ids);
+    }
+
     /**
      * 新增组织机构
      *
-     * @param loginInfo 用户关键信息
+     * @param info 用户关键信息
      * @param dto  组织机构DTO
      * @return Reply
      */
     @PostMapping("/v1.0/organizes")
-    public Long newOrganize(@RequestHeader("loginInfo") String loginInfo, @Valid @RequestBody Organize dto) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
+    public Long newOrganize(LoginInfo info, @Valid @RequestBody Organize dto) {
         var id = service.newOrganize(info, dto);
         LogClient.writeLog(info, BUSINESS, OperateType.NEW, id, dto);
         return id;
     }
 
+    /**
+     * 批量新增组织机构
+     *
+     * @param info 用户关键信息
+     * @param list 组织机构DTO集合, 节点ID仅作为批次内上级引用的键
+     * @return 新节点ID集合
+     */
+    @PostMapping("/v1.0/organizes/batch")
+    public List<Long> newOrganizes(LoginInfo info, @RequestBody List<Organize> list) {
+        var ids = service.newOrganizes(info, list);
+        LogClient.writeLog(info, BUSINESS, OperateType.NEW, null, list);
+        return ids;
+    }
+
     /**
      * 编辑组织机构
      *
-     * @param loginInfo 用户关键信息
+     * @param info 用户关键信息
      * @param id   组织机构ID
      * @param dto  组织机构DTO
      */
     @PutMapping("/v1.0/organizes/{id}")
-    public void editOrganize(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id, @Valid @RequestBody Organize dto) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
+    public void editOrganize(LoginInfo info, @PathVariable Long id, @Valid @RequestBody Organize dto) {
         dto.setId(id);
 
         service.editOrganize(info, dto);
         LogClient.writeLog(info, BUSINESS, OperateType.EDIT, id, dto);
     }
 
+    /**
+     * 批量移动组织机构
+     *
+     * @param info  用户关键信息
+     * @param moves 组织机构移动DTO集合
+     */
+    @PutMapping("/v1.0/organizes/moves")
+    public void moveOrganizes(LoginInfo info, @RequestBody List<OrganizeMoveDto> moves) {
+        service.moveOrganizes(info, moves);
+        LogClient.writeLog(info, BUSINESS, OperateType.EDIT, null, moves);
+    }
+
     /**
      * 删除组织机构
      *
-     * @param loginInfo 用户关键信息
-     * @param id   组织机构ID
+     * @param info    用户关键信息
+     * @param id      组织机构ID
+     * @param cascade 是否级联删除下属节点
      */
     @DeleteMapping("/v1.0/organizes/{id}")
-    public void deleteOrganize(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id) {
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-
-        service.deleteOrganize(info, id);
-        LogClient.writeLog(info, BUSINESS, OperateType.DELETE, id, null);
+    public void deleteOrganize(LoginInfo info, @PathVariable Long id, @RequestParam(defaultValue = "false") boolean cascade) {
+        var ids = service.deleteOrganize(info, id, cascade);
+        LogClient.writeLog(info, BUSINESS, OperateType.DELETE, id, cascade ? ids : null);
     }
 
     /**
@@ -115,72 +191,136 @@ public class OrganizeController {
      *
      * @param id     组织机构ID
      * @param search 查询实体类
+     * @param count  总数统计方式: EXACT/CACHED/ESTIMATED
      * @return Reply
      */
     @GetMapping("/v1.0/organizes/{id}/users")
-    public Reply getMemberUsers(@PathVariable Long id, Search search) {
-        return service.getMemberUsers(id, search);
+    public Reply getMemberUsers(@PathVariable Long id, Search search, @RequestParam(defaultValue = "EXACT") CountMode count) {
+        return service.getMemberUsers(id, search, count);
+    }
+
+    /**
+     * 查询组织机构及其全部下级节点的成员用户(去重)
+     *
+     * @param info   用户关键信息
+     * @param id     组织机构ID
+     * @param search 查询实体类
+     * @return Reply
+     */
+    @GetMapping("/v1.0/organizes/{id}/users/all")
+    public Reply getSubtreeUsers(LoginInfo info, @PathVariable Long id, Search search) {
+        return service.getSubtreeUsers(info.getTenantId(), id, search);
+    }
+
+    /**
+     * 按游标查询组织机构成员用户
+     *
+     * @param id     组织机构ID
+     * @param search 查询实体类
+     * @param after  上一页返回的游标, 为空时查询第一页
+     * @return 本页成员用户及下一页游标
+     */
+    @GetMapping("/v1.0/organizes/{id}/users/seek")
+    public MemberUserPage seekMemberUsers(@PathVariable Long id, Search search, @RequestParam(required = false) String after) {
+        return service.seekMemberUsers(id, search, after);
+    }
+
+    /**
+     * 获取用户所属的组织机构及其上级链
+     *
+     * @param info   用户关键信息
+     * @param userId 用户ID
+     * @return 组织机构上级链集合
+     */
+    @GetMapping("/v1.0/organizes/members/{userId}")
+    public List<List<OrganizeListDto>> getUserPosts(LoginInfo info, @PathVariable Long userId) {
+        return service.getUserPosts(info.getTenantId(), userId);
+    }
+
+    /**
+     * 批量获取用户所属的组织机构及其上级链
+     *
+     * @param info 用户关键信息
+     * @param ids  用户ID集合
+     * @return 用户ID和组织机构上级链集合的映射
+     */
+    @GetMapping("/v1.0/organizes/members")
+    public Map<Long, List<List<OrganizeListDto>>> getUserPosts(LoginInfo info, @RequestParam List<Long> ids) {
+        return service.getUserPosts(info.getTenantId(), ids);
     }
 
     /**
      * 添加组织机构成员
      *
-     * @param loginInfo    用户关键信息
+     * @param info    用户关键信息
      * @param id      组织机构ID
      * @param members 组织机构成员集合
+     * @return 成员变更结果
      */
     @PostMapping("/v1.0/organizes/{id}/members")
-    public void addOrganizeMembers(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id, @RequestBody List<Long> members) {
+    public MemberResultDto addOrganizeMembers(LoginInfo info, @PathVariable Long id, @RequestBody List<Long> members) {
         if (members == null || members.isEmpty()) {
             throw new BusinessException("请选择需要添加的成员");
         }
 
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-        service.addMembers(info, id, members);
+        var result = service.addMembers(info, id, members);
         LogClient.writeLog(info, BUSINESS, OperateType.EDIT, id, members);
+        return result;
     }
 
     /**
      * 移除组织机构成员
      *
-     * @param loginInfo    用户关键信息
+     * @param info    用户关键信息
      * @param id      组织机构ID
      * @param members 组织机构成员DTO
      */
     @DeleteMapping("/v1.0/organizes/{id}/members")
-    public void removeOrganizeMembers(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id, @RequestBody List<Long> members) {
+    public void removeOrganizeMembers(LoginInfo info, @PathVariable Long id, @RequestBody List<Long> members) {
         if (members == null || members.isEmpty()) {
             throw new BusinessException("请选择需要移除的成员");
         }
 
-        LoginInfo info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
         service.removeMember(info, id, members);
         LogClient.writeLog(info, BUSINESS, OperateType.DELETE, id, members);
     }
 
+    /**
+     * 重放停放队列中的组织机构消息
+     *
+     * @param info  用户关键信息
+     * @param count 最大重放数量
+     * @return 实际重放数量
+     */
+    @PostMapping("/v1.0/organizes/messages/replay")
+    public Integer replayMessages(LoginInfo info, @RequestParam(defaultValue = "100") Integer count) {
+        var replayed = service.replayMessages(count);
+        LogClient.writeLog(info, BUSINESS, OperateType.EDIT, null, replayed);
+
+        return replayed;
+    }
+
     /**
      * 查询日志
      *
-     * @param loginInfo 用户登录信息
-     * @param search    查询条件
+     * @param info   用户登录信息
+     * @param search 查询条件
      * @return 日志集合
      */
     @GetMapping("/v1.0/organizes/{id}/logs")
-    public Reply getAirportLogs(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id, Search search) {
-        var info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
-        return client.getLogs(id, "Organize", search.getKeyword());
+    public Reply getAirportLogs(LoginInfo info, @PathVariable Long id, Search search) {
+        return client.getLogs(id, search.getKeyword());
     }
 
     /**
      * 获取日志
      *
-     * @param loginInfo 用户登录信息
-     * @param id        日志ID
+     * @param info 用户登录信息
+     * @param id   日志ID
      * @return 日志VO
      */
     @GetMapping("/v1.0/organizes/logs/{id}")
-    public Reply getAirportLog(@RequestHeader("loginInfo") String loginInfo, @PathVariable Long id) {
-        var info = Json.toBeanFromBase64(loginInfo, LoginInfo.class);
+    public Reply getAirportLog(LoginInfo info, @PathVariable Long id) {
         return client.getLog(id);
     }
 }
@@ -1,12 +1,19 @@
 package com.insight.base.organize.manage;
 
+import com.insight.base.organize.common.dto.CountMode;
+import com.insight.base.organize.common.dto.MemberResultDto;
+import com.insight.base.organize.common.dto.MemberUserPage;
 import com.insight.base.organize.common.dto.Organize;
 import com.insight.base.organize.common.dto.OrganizeListDto;
+import com.insight.base.organize.common.dto.OrganizeMoveDto;
 import com.insight.utils.pojo.auth.LoginInfo;
 import com.insight.utils.pojo.base.Reply;
 import com.insight.utils.pojo.base.Search;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author 宣炳刚
@@ -23,6 +30,15 @@ public interface OrganizeService {
      */
     List<OrganizeListDto> getOrganizes(Search search);
 
+    /**
+     * 将租户的组织机构列表以Reply格式逐行写入输出流
+     *
+     * @param tenantId 租户ID
+     * @param stream   输出流
+     * @throws IOException IOException
+     */
+    void writeOrganizes(Long tenantId, OutputStream stream) throws IOException;
+
     /**
      * 获取组织机构详情
      *
@@ -31,6 +47,32 @@ public interface OrganizeService {
      */
     Organize getOrganize(Long id);
 
+    /**
+     * 批量获取组织机构详情
+     *
+     * @param ids 组织机构ID集合
+     * @return 组织机构ID和详情的映射
+     */
+    Map<Long, Organize> getOrganizes(List<Long> ids);
+
+    /**
+     * 获取组织机构的上级链
+     *
+     * @param tenantId 租户ID
+     * @param id       组织机构ID
+     * @return 从根节点到当前节点的组织机构集合
+     */
+    List<OrganizeListDto> getAncestors(Long tenantId, Long id);
+
+    /**
+     * 批量获取组织机构的上级链
+     *
+     * @param tenantId 租户ID
+     * @param ids      组织机构ID集合
+     * @return 组织机构ID和上级链的映射
+     */
+    Map<Long, List<OrganizeListDto>> getAncestors(Long tenantId, List<Long> ids);
+
     /**
      * 新增组织机构
      *
@@ -40,6 +82,15 @@ public interface OrganizeService {
      */
     Long newOrganize(LoginInfo info, Organize dto);
 
+    /**
+     * 批量新增组织机构
+     *
+     * @param info 用户关键信息
+     * @param list 组织机构DTO集合
+     * @return 新节点ID集合
+     */
+    List<Long> newOrganizes(LoginInfo info, List<Organize> list);
+
     /**
      * 编辑组织机构
      *
@@ -48,22 +99,71 @@ public interface OrganizeService {
      */
     void editOrganize(LoginInfo info, Organize dto);
 
+    /**
+     * 批量移动组织机构
+     *
+     * @param info  用户关键信息
+     * @param moves 组织机构移动DTO集合
+     */
+    void moveOrganizes(LoginInfo info, List<OrganizeMoveDto> moves);
+
     /**
      * 删除组织机构
      *
-     * @param info 用户关键信息
-     * @param id   组织机构ID
+     * @param info    用户关键信息
+     * @param id      组织机构ID
+     * @param cascade 是否级联删除下属节点
+     * @return 被删除的组织机构ID集合
      */
-    void deleteOrganize(LoginInfo info, Long id);
+    List<Long> deleteOrganize(LoginInfo info, Long id, boolean cascade);
 
     /**
      * 查询组织机构成员用户
      *
      * @param id     组织机构ID
      * @param search 查询实体类
+     * @param mode   总数统计方式
+     * @return Reply
+     */
+    Reply getMemberUsers(Long id, Search search, CountMode mode);
+
+    /**
+     * 查询组织机构及其全部下级节点的成员用户(去重)
+     *
+     * @param tenantId 租户ID
+     * @param id       组织机构ID
+     * @param search   查询实体类
      * @return Reply
      */
-    Reply getMemberUsers(Long id, Search search);
+    Reply getSubtreeUsers(Long tenantId, Long id, Search search);
+
+    /**
+     * 按游标查询组织机构成员用户
+     *
+     * @param id     组织机构ID
+     * @param search 查询实体类
+     * @param after  上一页返回的游标, 为空时查询第一页
+     * @return 本页成员用户及下一页游标
+     */
+    MemberUserPage seekMemberUsers(Long id, Search search, String after);
+
+    /**
+     * 获取用户所属的组织机构及其上级链
+     *
+     * @param tenantId 租户ID
+     * @param userId   用户ID
+     * @return 组织机构上级链集合, 每个上级链从根节点到用户所属的组织机构
+     */
+    List<List<OrganizeListDto>> getUserPosts(Long tenantId, Long userId);
+
+    /**
+     * 批量获取用户所属的组织机构及其上级链
+     *
+     * @param tenantId 租户ID
+     * @param userIds  用户ID集合
+     * @return 用户ID和组织机构上级链集合的映射
+     */
+    Map<Long, List<List<OrganizeListDto>>> getUserPosts(Long tenantId, List<Long> userIds);
 
     /**
      * 添加组织机构成员
@@ -71,8 +171,9 @@ public interface OrganizeService {
      * @param info    用户关键信息
      * @param id      组织机构ID
      * @param members 组织机构成员ID集合
+     * @return 成员变更结果
      */
-    void addMembers(LoginInfo info, Long id, List<Long> members);
+    MemberResultDto addMembers(LoginInfo info, Long id, List<Long> members);
 
     /**
      * 移除组织机构成员
@@ -82,4 +183,12 @@ public interface OrganizeService {
      * @param members 组织机构成员ID集合
      */
     void removeMember(LoginInfo info, Long id, List<Long> members);
+
+    /**
+     * 重放停放队列中的组织机构消息
+     *
+     * @param count 最大重放数量
+     * @return 实际重放数量
+     */
+    int replayMessages(int count);
 }
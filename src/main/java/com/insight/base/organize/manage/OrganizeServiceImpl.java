@@ -1,10 +1,23 @@
 package com.insight.base.organize.manage;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.pagehelper.PageHelper;
 import com.insight.base.organize.common.Core;
+import com.insight.base.organize.common.MessageRetry;
+import com.insight.base.organize.common.OrganizeCache;
+import com.insight.base.organize.common.OrganizeLoader;
+import com.insight.base.organize.common.dto.CountMode;
+import com.insight.base.organize.common.dto.MemberResultDto;
+import com.insight.base.organize.common.dto.MemberUserDto;
+import com.insight.base.organize.common.dto.MemberUserPage;
 import com.insight.base.organize.common.dto.Organize;
 import com.insight.base.organize.common.dto.OrganizeListDto;
+import com.insight.base.organize.common.dto.OrganizeMoveDto;
 import com.insight.base.organize.common.mapper.OrganizeMapper;
+import com.insight.base.organize.common.tree.LongHashSet;
+import com.insight.base.organize.common.tree.OrganizeTree;
 import com.insight.utils.ReplyHelper;
 import com.insight.utils.SnowflakeCreator;
 import com.insight.utils.pojo.auth.LoginInfo;
@@ -12,8 +25,21 @@ import com.insight.utils.pojo.base.BusinessException;
 import com.insight.utils.pojo.base.Reply;
 import com.insight.utils.pojo.base.Search;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * @author 宣炳刚
@@ -22,9 +48,16 @@ import java.util.List;
  */
 @Service
 public class OrganizeServiceImpl implements OrganizeService {
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_IMPORT_SIZE = 50000;
+    private static final int BATCH_SIZE = 1000;
     private final SnowflakeCreator creator;
     private final OrganizeMapper mapper;
     private final Core core;
+    private final OrganizeCache cache;
+    private final OrganizeLoader loader;
+    private final ObjectMapper json;
+    private final MessageRetry retry;
 
     /**
      * 构造方法
@@ -32,11 +65,19 @@ public class OrganizeServiceImpl implements OrganizeService {
      * @param creator 雪花算法ID生成器
      * @param mapper  RoleMapper
      * @param core    Core
+     * @param cache   组织机构缓存
+     * @param loader  组织机构加载器
+     * @param json    ObjectMapper
+     * @param retry   消息重试
      */
-    public OrganizeServiceImpl(SnowflakeCreator creator, OrganizeMapper mapper, Core core) {
+    public OrganizeServiceImpl(SnowflakeCreator creator, OrganizeMapper mapper, Core core, OrganizeCache cache, OrganizeLoader loader, ObjectMapper json, MessageRetry retry) {
         this.creator = creator;
         this.mapper = mapper;
         this.core = core;
+        this.cache = cache;
+        this.loader = loader;
+        this.json = json;
+        this.retry = retry;
     }
 
     /**
@@ -49,6 +90,14 @@ public class OrganizeServiceImpl implements OrganizeService {
     public List<OrganizeListDto> getOrganizes(Search search) {
         Long id = search.getId();
         if (id != null) {
+            Long tenantId = search.getTenantId();
+            if (tenantId != null) {
+                var tree = getTree(tenantId);
+                if (tree.contains(id)) {
+                    return tree.getSubOrganizes(id);
+                }
+            }
+
             return mapper.getSubOrganizes(id);
         } else {
             Long tenantId = search.getTenantId();
@@ -56,7 +105,46 @@ public class OrganizeServiceImpl implements OrganizeService {
                 throw new BusinessException("租户ID不能为空");
             }
 
-            return mapper.getOrganizes(tenantId);
+            return cache.getTree(tenantId, () -> mapper.getOrganizes(tenantId));
+        }
+    }
+
+    /**
+     * 将租户的组织机构列表以Reply格式逐行写入输出流
+     * 数据从数据库游标逐行读出后立即序列化, 内存占用与租户的组织机构数量无关
+     *
+     * @param tenantId 租户ID
+     * @param stream   输出流
+     * @throws IOException IOException
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void writeOrganizes(Long tenantId, OutputStream stream) throws IOException {
+        if (tenantId == null) {
+            throw new BusinessException("租户ID不能为空");
+        }
+
+        Object data = List.of();
+        ObjectNode reply = json.valueToTree(ReplyHelper.success(data));
+        reply.remove("data");
+        try (var generator = json.getFactory().createGenerator(stream);
+             var cursor = mapper.getOrganizeCursor(tenantId)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            var fields = reply.fields();
+            while (fields.hasNext()) {
+                var field = fields.next();
+                generator.writeFieldName(field.getKey());
+                generator.writeTree(field.getValue());
+            }
+
+            generator.writeArrayFieldStart("data");
+            for (var dto : cursor) {
+                generator.writeObject(dto);
+            }
+
+            generator.writeEndArray();
+            generator.writeEndObject();
         }
     }
 
@@ -68,7 +156,7 @@ public class OrganizeServiceImpl implements OrganizeService {
      */
     @Override
     public Organize getOrganize(Long id) {
-        Organize organize = mapper.getOrganize(id);
+        Organize organize = cache.getOrganizes(List.of(id), mapper::getOrganizesByIds).get(id);
         if (organize == null) {
             throw new BusinessException("ID不存在,未读取数据");
         }
@@ -76,6 +164,64 @@ public class OrganizeServiceImpl implements OrganizeService {
         return organize;
     }
 
+    /**
+     * 批量获取组织机构详情
+     * 优先从缓存读取, 未命中的组织机构以一次in查询加载
+     *
+     * @param ids 组织机构ID集合
+     * @return 组织机构ID和详情的映射, 不存在的ID不包含在内
+     */
+    @Override
+    public Map<Long, Organize> getOrganizes(List<Long> ids) {
+        var list = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (list.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException("单次最多查询" + MAX_BATCH_SIZE + "个组织机构");
+        }
+
+        return list.isEmpty() ? new LinkedHashMap<>() : cache.getOrganizes(list, mapper::getOrganizesByIds);
+    }
+
+    /**
+     * 获取组织机构的上级链
+     *
+     * @param tenantId 租户ID
+     * @param id       组织机构ID
+     * @return 从根节点到当前节点的组织机构集合
+     */
+    @Override
+    public List<OrganizeListDto> getAncestors(Long tenantId, Long id) {
+        var list = getTree(tenantId).getAncestors(id);
+        if (list.isEmpty()) {
+            throw new BusinessException("ID不存在,未读取数据");
+        }
+
+        return list;
+    }
+
+    /**
+     * 批量获取组织机构的上级链
+     *
+     * @param tenantId 租户ID
+     * @param ids      组织机构ID集合
+     * @return 组织机构ID和上级链的映射
+     */
+    @Override
+    public Map<Long, List<OrganizeListDto>> getAncestors(Long tenantId, List<Long> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException("单次最多查询" + MAX_BATCH_SIZE + "个组织机构");
+        }
+
+        var tree = getTree(tenantId);
+        var map = new LinkedHashMap<Long, List<OrganizeListDto>>();
+        for (var id : ids) {
+            if (id != null && tree.contains(id)) {
+                map.put(id, tree.getAncestors(id));
+            }
+        }
+
+        return map;
+    }
+
     /**
      * 新增组织机构
      *
@@ -96,19 +242,12 @@ public class OrganizeServiceImpl implements OrganizeService {
         var id = creator.nextId(6);
         var parentId = dto.getParentId();
         if (parentId != null) {
-            Organize organize = mapper.getOrganize(parentId);
+            Organize organize = loader.get(parentId);
             if (organize == null) {
                 throw new BusinessException("不存在的上级机构或部门");
             }
 
-            var type = organize.getType();
-            if (type == 2) {
-                throw new BusinessException("职位节点不能新建下级");
-            } else if (type == 0 && dto.getType() == 2) {
-                throw new BusinessException("职位只能从属于部门");
-            } else if (type > dto.getType()) {
-                throw new BusinessException("非法的组织机构类型");
-            }
+            checkType(organize.getType(), dto.getType());
         } else {
             dto.setType(0);
         }
@@ -122,6 +261,104 @@ public class OrganizeServiceImpl implements OrganizeService {
         return id;
     }
 
+    /**
+     * 批量新增组织机构
+     * 节点的ID作为批次内的引用键, 上级ID与批次内某个节点的ID相同时视为引用该节点, 否则视为引用已存在的节点
+     *
+     * @param info 用户关键信息
+     * @param list 组织机构DTO集合
+     * @return 新节点ID集合, 与输入顺序一致
+     */
+    @Override
+    public List<Long> newOrganizes(LoginInfo info, List<Organize> list) {
+        if (list == null || list.isEmpty()) {
+            throw new BusinessException("请选择需要新增的组织机构");
+        }
+
+        if (list.size() > MAX_IMPORT_SIZE) {
+            throw new BusinessException("单次最多新增" + MAX_IMPORT_SIZE + "个组织机构");
+        }
+
+        int count = list.size();
+        var keys = new HashMap<Long, Integer>(count * 2);
+        for (int i = 0; i < count; i++) {
+            var dto = list.get(i);
+            if (dto.getName() == null || dto.getName().isEmpty()) {
+                throw new BusinessException("名称不能为空");
+            }
+
+            var key = dto.getId();
+            if (key != null && keys.put(key, i) != null) {
+                throw new BusinessException("重复的节点ID: " + key);
+            }
+
+            if (dto.getType() == null || dto.getParentId() == null) {
+                dto.setType(0);
+            } else if (dto.getType() < 0 || dto.getType() > 2) {
+                throw new BusinessException("非法的组织机构类型");
+            }
+        }
+
+        // 沿批次内的上级引用检查是否成环: 1.本次遍历中; 2.已确认无环
+        var states = new int[count];
+        var chain = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            int node = i;
+            chain.clear();
+            while (node >= 0 && states[node] == 0) {
+                states[node] = 1;
+                chain.add(node);
+                var parentId = list.get(node).getParentId();
+                node = parentId == null ? -1 : keys.getOrDefault(parentId, -1);
+            }
+
+            if (node >= 0 && states[node] == 1) {
+                throw new BusinessException("上级关系存在循环引用: " + list.get(node).getId());
+            }
+
+            chain.forEach(n -> states[n] = 2);
+        }
+
+        var tree = getTree(info.getTenantId());
+        for (var dto : list) {
+            var parentId = dto.getParentId();
+            if (parentId == null) {
+                continue;
+            }
+
+            var parent = keys.get(parentId);
+            if (parent == null && !tree.contains(parentId)) {
+                throw new BusinessException("不存在的上级机构或部门: " + parentId);
+            }
+
+            var parentType = parent == null ? tree.getType(parentId) : list.get(parent).getType();
+            checkType(parentType == null ? 0 : parentType, dto.getType());
+        }
+
+        var ids = new ArrayList<Long>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(creator.nextId(6));
+        }
+
+        for (var dto : list) {
+            var parent = dto.getParentId() == null ? null : keys.get(dto.getParentId());
+            if (parent != null) {
+                dto.setParentId(ids.get(parent));
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            var dto = list.get(i);
+            dto.setId(ids.get(i));
+            dto.setTenantId(info.getTenantId());
+            dto.setCreator(info.getName());
+            dto.setCreatorId(info.getId());
+        }
+
+        core.addOrganizes(list);
+        return ids;
+    }
+
     /**
      * 编辑组织机构
      *
@@ -129,9 +366,10 @@ public class OrganizeServiceImpl implements OrganizeService {
      * @param dto  组织机构DTO
      */
     @Override
+    @Transactional
     public void editOrganize(LoginInfo info, Organize dto) {
         Long id = dto.getId();
-        Organize organize = mapper.getOrganize(id);
+        Organize organize = loader.get(id);
         if (organize == null) {
             throw new BusinessException("ID不存在,未更新数据");
         }
@@ -160,28 +398,131 @@ public class OrganizeServiceImpl implements OrganizeService {
             dto.setRemark(organize.getRemark());
         }
 
+        var moved = !Objects.equals(dto.getParentId(), organize.getParentId());
+        if (moved || !Objects.equals(dto.getType(), organize.getType())) {
+            var tree = getTree(organize.getTenantId());
+            int type = dto.getType() == null ? 0 : dto.getType();
+            checkMove(tree, Map.of(), id, dto.getParentId(), type);
+            for (var childId : tree.getChildIds(id)) {
+                var childType = tree.getType(childId);
+                checkType(type, childType == null ? 0 : childType);
+            }
+        }
+
         mapper.updateOrganize(dto);
+        if (moved) {
+            mapper.deletePaths(id);
+            mapper.addPaths(id, dto.getParentId());
+        }
+
+        loader.evict(id);
+        cache.evictTree(organize.getTenantId());
+        cache.evictOrganizes(List.of(id));
+    }
+
+    /**
+     * 批量移动组织机构
+     * 以组织机构树快照叠加本批次的上级变更校验环路和类型, 然后先将所有移动节点从原上级摘下, 再按新层级由上至下挂到新上级,
+     * 所有变更在同一事务中完成
+     *
+     * @param info  用户关键信息
+     * @param moves 组织机构移动DTO集合
+     */
+    @Override
+    @Transactional
+    public void moveOrganizes(LoginInfo info, List<OrganizeMoveDto> moves) {
+        if (moves == null || moves.isEmpty()) {
+            throw new BusinessException("移动的组织机构不能为空");
+        }
+
+        if (moves.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException("单次最多移动" + MAX_BATCH_SIZE + "个组织机构");
+        }
+
+        var parents = new HashMap<Long, Long>(moves.size() * 2);
+        for (var move : moves) {
+            if (move.getId() == null) {
+                throw new BusinessException("组织机构ID不能为空");
+            }
+
+            if (parents.containsKey(move.getId())) {
+                throw new BusinessException("重复移动的组织机构: " + move.getId());
+            }
+
+            parents.put(move.getId(), move.getParentId());
+        }
+
+        var tree = getTree(info.getTenantId());
+        var levels = new HashMap<Long, Integer>(moves.size() * 2);
+        for (var move : moves) {
+            var id = move.getId();
+            if (!tree.contains(id)) {
+                throw new BusinessException("ID不存在,未更新数据: " + id);
+            }
+
+            var type = tree.getType(id);
+            levels.put(id, checkMove(tree, parents, id, move.getParentId(), type == null ? 0 : type));
+        }
+
+        var changed = new HashSet<Long>(moves.size() * 2);
+        moves.stream().filter(i -> !Objects.equals(i.getParentId(), tree.getParentId(i.getId()))).forEach(i -> changed.add(i.getId()));
+        changed.forEach(mapper::deletePaths);
+        moves.stream().sorted(Comparator.comparingInt(i -> levels.get(i.getId()))).forEach(i -> {
+            mapper.updateParent(i);
+            if (changed.contains(i.getId())) {
+                mapper.addPaths(i.getId(), i.getParentId());
+            }
+        });
+
+        parents.keySet().forEach(loader::evict);
+        cache.evictTree(info.getTenantId());
+        cache.evictOrganizes(parents.keySet());
     }
 
     /**
      * 删除组织机构
+     * 级联删除时以祖先索引一次取得整个子树, 再分批以in语句删除成员、祖先索引和组织机构, 所有删除在同一事务中完成
      *
-     * @param info 用户关键信息
-     * @param id   组织机构ID
+     * @param info    用户关键信息
+     * @param id      组织机构ID
+     * @param cascade 是否级联删除下属节点
+     * @return 被删除的组织机构ID集合
      */
     @Override
-    public void deleteOrganize(LoginInfo info, Long id) {
-        Organize organize = mapper.getOrganize(id);
+    @Transactional
+    public List<Long> deleteOrganize(LoginInfo info, Long id, boolean cascade) {
+        Organize organize = loader.get(id);
         if (organize == null) {
             throw new BusinessException("ID不存在,未删除数据");
         }
 
-        int count = mapper.getOrganizeCount(id);
-        if (count > 0) {
-            throw new BusinessException("存在下属节点,请先删除下属节点");
+        if (!cascade) {
+            int count = mapper.getOrganizeCount(id);
+            if (count > 0) {
+                throw new BusinessException("存在下属节点,请先删除下属节点");
+            }
+        }
+
+        var ids = cascade ? mapper.getSubIds(id) : List.of(id);
+        if (ids.isEmpty()) {
+            ids = List.of(id);
         }
 
-        mapper.deleteRole(id);
+        var members = new LongHashSet(ids.size());
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            var chunk = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+            mapper.getMemberIds(chunk, context -> members.add(context.getResultObject()));
+            mapper.deleteMembers(chunk);
+            mapper.deleteOrganizePaths(chunk);
+            mapper.deleteOrganizes(chunk);
+        }
+
+        ids.forEach(loader::evict);
+        cache.evictTree(organize.getTenantId());
+        cache.evictOrganizes(ids);
+        cache.evictMemberCounts(ids);
+        cache.evictUserPosts(Arrays.stream(members.toArray()).boxed().toList());
+        return ids;
     }
 
     /**
@@ -189,38 +530,236 @@ public class OrganizeServiceImpl implements OrganizeService {
      *
      * @param id     组织机构ID
      * @param search 查询实体类
+     * @param mode   总数统计方式
      * @return Reply
      */
     @Override
-    public Reply getMemberUsers(Long id, Search search) {
-        Organize organize = mapper.getOrganize(id);
+    public Reply getMemberUsers(Long id, Search search, CountMode mode) {
+        Organize organize = loader.get(id);
         if (organize == null) {
             throw new BusinessException("ID不存在,未读取数据");
         }
 
         search.setId(id);
-        try (var page = PageHelper.startPage(search.getPageNum(), search.getPageSize()).setOrderBy(search.getOrderBy())
+        var exact = mode == null || mode == CountMode.EXACT;
+        try (var page = PageHelper.startPage(search.getPageNum(), search.getPageSize(), exact).setOrderBy(search.getOrderBy())
                 .doSelectPage(() -> mapper.getMemberUsers(search))) {
-            var total = page.getTotal();
+            var total = exact ? page.getTotal() : switch (mode) {
+                case CACHED -> cache.getMemberCount(id, search.getKeyword() + "|" + search.getInvalid(), () -> mapper.countMemberUsers(search));
+                default -> mapper.countMembers(id);
+            };
+
             return total > 0 ? ReplyHelper.success(page.getResult(), total) : ReplyHelper.resultIsEmpty();
         }
     }
 
+    /**
+     * 查询组织机构及其全部下级节点的成员用户(去重)
+     * 下级节点取自树快照, 成员关系按节点ID分批查询并逐行写入long集合去重; 有查询条件时再分批筛选用户, 最后按用户ID排序分页后读取本页用户详情
+     *
+     * @param tenantId 租户ID
+     * @param id       组织机构ID
+     * @param search   查询实体类
+     * @return Reply
+     */
+    @Override
+    public Reply getSubtreeUsers(Long tenantId, Long id, Search search) {
+        int size = search.getPageSize();
+        if (size <= 0 || size > MAX_BATCH_SIZE) {
+            throw new BusinessException("每页数量必须在1到" + MAX_BATCH_SIZE + "之间");
+        }
+
+        if (search.getPageNum() <= 0) {
+            throw new BusinessException("无效的分页参数");
+        }
+
+        var tree = getTree(tenantId);
+        if (!tree.contains(id)) {
+            throw new BusinessException("ID不存在,未读取数据");
+        }
+
+        var nodes = tree.getSubIds(id);
+        var users = new LongHashSet(nodes.length);
+        var chunk = new ArrayList<Long>(BATCH_SIZE);
+        for (int i = 0; i < nodes.length; i++) {
+            chunk.add(nodes[i]);
+            if (chunk.size() == BATCH_SIZE || i == nodes.length - 1) {
+                mapper.getMemberIds(chunk, context -> users.add(context.getResultObject()));
+                chunk.clear();
+            }
+        }
+
+        var ids = users.toArray();
+        if (search.getKeyword() != null || search.getInvalid() != null) {
+            var matched = new LongHashSet(ids.length);
+            for (int i = 0; i < ids.length; i += BATCH_SIZE) {
+                var part = Arrays.stream(ids, i, Math.min(i + BATCH_SIZE, ids.length)).boxed().toList();
+                mapper.filterUserIds(part, search, context -> matched.add(context.getResultObject()));
+            }
+
+            ids = matched.toArray();
+        }
+
+        if (ids.length == 0) {
+            return ReplyHelper.resultIsEmpty();
+        }
+
+        Arrays.sort(ids);
+        int from = (int) Math.min((long) (search.getPageNum() - 1) * size, ids.length);
+        int to = Math.min(from + size, ids.length);
+        var page = new ArrayList<Long>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(ids[i]);
+        }
+
+        var list = page.isEmpty() ? List.<MemberUserDto>of() : mapper.getUsers(page);
+        return ReplyHelper.success(list, ids.length);
+    }
+
+    /**
+     * 按游标查询组织机构成员用户
+     * 按用户ID排序并从游标位置向后读取, 不统计总数, 翻到任意深度的代价都与第一页相同; 不支持指定排序字段
+     *
+     * @param id     组织机构ID
+     * @param search 查询实体类
+     * @param after  上一页返回的游标, 为空时查询第一页
+     * @return 本页成员用户及下一页游标
+     */
+    @Override
+    public MemberUserPage seekMemberUsers(Long id, Search search, String after) {
+        Organize organize = loader.get(id);
+        if (organize == null) {
+            throw new BusinessException("ID不存在,未读取数据");
+        }
+
+        int size = search.getPageSize();
+        if (size <= 0 || size > MAX_BATCH_SIZE) {
+            throw new BusinessException("每页数量必须在1到" + MAX_BATCH_SIZE + "之间");
+        }
+
+        if (search.getOrderBy() != null && !search.getOrderBy().isEmpty()) {
+            throw new BusinessException("游标分页固定按用户ID排序, 不支持指定排序字段");
+        }
+
+        Long userId = null;
+        if (after != null && !after.isEmpty()) {
+            try {
+                userId = Long.valueOf(new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8));
+            } catch (RuntimeException ex) {
+                throw new BusinessException("无效的分页游标");
+            }
+        }
+
+        search.setId(id);
+        var list = mapper.seekMemberUsers(search, userId, size + 1);
+
+        var page = new MemberUserPage();
+        if (list.size() > size) {
+            list = new ArrayList<>(list.subList(0, size));
+            var cursor = String.valueOf(list.get(size - 1).getId());
+            page.setNext(Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        page.setList(list);
+        return page;
+    }
+
+    /**
+     * 获取用户所属的组织机构及其上级链
+     *
+     * @param tenantId 租户ID
+     * @param userId   用户ID
+     * @return 组织机构上级链集合, 每个上级链从根节点到用户所属的组织机构
+     */
+    @Override
+    public List<List<OrganizeListDto>> getUserPosts(Long tenantId, Long userId) {
+        return getUserPosts(tenantId, List.of(userId)).get(userId);
+    }
+
+    /**
+     * 批量获取用户所属的组织机构及其上级链
+     * 用户到组织机构的反向索引缓存在Redis中, 上级链取自树快照, 其他租户的组织机构不返回
+     *
+     * @param tenantId 租户ID
+     * @param userIds  用户ID集合
+     * @return 用户ID和组织机构上级链集合的映射
+     */
+    @Override
+    public Map<Long, List<List<OrganizeListDto>>> getUserPosts(Long tenantId, List<Long> userIds) {
+        if (userIds.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException("单次最多查询" + MAX_BATCH_SIZE + "个用户");
+        }
+
+        var tree = getTree(tenantId);
+        var ids = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        var posts = cache.getUserPosts(ids, misses -> {
+            var loaded = new HashMap<Long, List<Long>>();
+            for (int i = 0; i < misses.size(); i += BATCH_SIZE) {
+                for (var member : mapper.getUserPosts(misses.subList(i, Math.min(i + BATCH_SIZE, misses.size())))) {
+                    loaded.computeIfAbsent(member.getUserId(), k -> new ArrayList<>()).add(member.getPostId());
+                }
+            }
+
+            return loaded;
+        });
+
+        var map = new LinkedHashMap<Long, List<List<OrganizeListDto>>>();
+        for (var userId : ids) {
+            var chains = new ArrayList<List<OrganizeListDto>>();
+            for (var postId : posts.getOrDefault(userId, List.of())) {
+                if (tree.contains(postId)) {
+                    chains.add(tree.getAncestors(postId));
+                }
+            }
+
+            map.put(userId, chains);
+        }
+
+        return map;
+    }
+
     /**
      * 添加组织机构成员
+     * 先读取组织机构的现有成员过滤已有成员, 新成员按固定大小分批以insert ignore写入, 并发的重复提交也不会因主键冲突失败;
+     * 新增数量以实际写入的行数为准
      *
      * @param info    用户关键信息
      * @param id      组织机构ID
      * @param members 组织机构成员ID集合
+     * @return 成员变更结果
      */
     @Override
-    public void addMembers(LoginInfo info, Long id, List<Long> members) {
-        Organize organize = mapper.getOrganize(id);
+    @Transactional
+    public MemberResultDto addMembers(LoginInfo info, Long id, List<Long> members) {
+        Organize organize = loader.get(id);
         if (organize == null) {
             throw new BusinessException("ID不存在,未更新数据");
         }
 
-        mapper.addMembers(id, members);
+        var existing = new LongHashSet(members.size());
+        mapper.getMemberIds(List.of(id), context -> existing.add(context.getResultObject()));
+
+        var list = new ArrayList<Long>();
+        for (var member : members) {
+            if (member != null && existing.add(member)) {
+                list.add(member);
+            }
+        }
+
+        int added = 0;
+        for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+            added += mapper.addMembers(id, list.subList(i, Math.min(i + BATCH_SIZE, list.size())));
+        }
+
+        if (added > 0) {
+            cache.evictMemberCount(id);
+            cache.evictUserPosts(list);
+        }
+
+        var result = new MemberResultDto();
+        result.setAdded(added);
+        result.setSkipped(members.size() - added);
+        return result;
     }
 
     /**
@@ -232,11 +771,90 @@ public class OrganizeServiceImpl implements OrganizeService {
      */
     @Override
     public void removeMember(LoginInfo info, Long id, List<Long> members) {
-        Organize organize = mapper.getOrganize(id);
+        Organize organize = loader.get(id);
         if (organize == null) {
             throw new BusinessException("ID不存在,未删除数据");
         }
 
         mapper.removeMember(id, members);
+        cache.evictMemberCount(id);
+        cache.evictUserPosts(members);
+    }
+
+    /**
+     * 重放停放队列中的组织机构消息
+     *
+     * @param count 最大重放数量
+     * @return 实际重放数量
+     */
+    @Override
+    public int replayMessages(int count) {
+        if (count <= 0) {
+            throw new BusinessException("重放数量必须大于0");
+        }
+
+        return retry.replay(count);
+    }
+
+    /**
+     * 获取租户的组织机构树快照
+     *
+     * @param tenantId 租户ID
+     * @return 组织机构树快照
+     */
+    private OrganizeTree getTree(Long tenantId) {
+        if (tenantId == null) {
+            throw new BusinessException("租户ID不能为空");
+        }
+
+        return cache.getSnapshot(tenantId, () -> mapper.getOrganizes(tenantId));
+    }
+
+    /**
+     * 校验组织机构移动到新上级后是否形成环路, 以及新上级与组织机构的类型是否匹配
+     *
+     * @param tree     组织机构树快照
+     * @param parents  本批次移动节点的新上级
+     * @param id       组织机构ID
+     * @param parentId 新上级节点ID
+     * @param type     组织机构类型
+     * @return 新上级链中其他移动节点的数量
+     */
+    private static int checkMove(OrganizeTree tree, Map<Long, Long> parents, Long id, Long parentId, int type) {
+        if (parentId == null) {
+            if (type != 0) {
+                throw new BusinessException("顶级节点只能是机构");
+            }
+        } else {
+            if (!tree.contains(parentId)) {
+                throw new BusinessException("不存在的上级机构或部门");
+            }
+
+            var parentType = tree.getType(parentId);
+            checkType(parentType == null ? 0 : parentType, type);
+        }
+
+        int level = tree.getMoveLevel(id, parentId, parents);
+        if (level < 0) {
+            throw new BusinessException("不能移动到自身或下级节点");
+        }
+
+        return level;
+    }
+
+    /**
+     * 检查节点类型与上级节点类型是否匹配
+     *
+     * @param parentType 上级节点类型
+     * @param type       节点类型
+     */
+    private static void checkType(int parentType, int type) {
+        if (parentType == 2) {
+            throw new BusinessException("职位节点不能新建下级");
+        } else if (parentType == 0 && type == 2) {
+            throw new BusinessException("职位只能从属于部门");
+        } else if (parentType > type) {
+            throw new BusinessException("非法的组织机构类型");
+        }
     }
 }
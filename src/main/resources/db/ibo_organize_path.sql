@@ -0,0 +1,17 @@
+-- 组织机构祖先索引(闭包表), 每个节点与其自身及全部上级节点各有一行
+create table if not exists ibo_organize_path
+(
+    ancestor_id   bigint unsigned  not null comment '上级节点ID',
+    descendant_id bigint unsigned  not null comment '下级节点ID',
+    depth         int unsigned     not null comment '层级距离:0.节点自身',
+    primary key (ancestor_id, descendant_id),
+    key idx_organize_path_descendant (descendant_id, depth)
+) engine = InnoDB
+  default charset = utf8mb4 comment ='组织机构祖先索引';
+
+-- 根据现有数据初始化祖先索引
+insert ignore ibo_organize_path(ancestor_id, descendant_id, depth)
+with recursive paths as (select id as ancestor_id, id as descendant_id, 0 as depth from ibo_organize
+                         union all
+                         select p.ancestor_id, o.id, p.depth + 1 from paths p join ibo_organize o on o.parent_id = p.descendant_id)
+select ancestor_id, descendant_id, depth from paths;
@@ -0,0 +1,82 @@
+package com.insight.base.organize.common.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitedDataSourceTests {
+
+	@Test
+	void releasesPermitWhenConnectionClosed() throws Exception {
+		var closed = new AtomicInteger();
+		var dataSource = new LimitedDataSource(dataSource(closed, false), 1, 0);
+
+		var first = dataSource.getConnection();
+		assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+		first.close();
+		first.close();
+		assertEquals(2, closed.get());
+
+		// 重复关闭只释放一次许可
+		var second = dataSource.getConnection();
+		assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+		second.close();
+	}
+
+	@Test
+	void releasesPermitWhenConnectionFails() {
+		var dataSource = new LimitedDataSource(dataSource(new AtomicInteger(), true), 1, 0);
+
+		for (int i = 0; i < 3; i++) {
+			var ex = assertThrows(SQLException.class, dataSource::getConnection);
+			assertFalse(ex instanceof SQLTransientConnectionException);
+		}
+	}
+
+	@Test
+	void comparesConnectionsByIdentity() throws Exception {
+		var dataSource = new LimitedDataSource(dataSource(new AtomicInteger(), false), 2, 0);
+
+		var first = dataSource.getConnection();
+		var second = dataSource.getConnection();
+		assertEquals(first, first);
+		assertNotEquals(first, second);
+		first.close();
+		second.close();
+	}
+
+	/**
+	 * 创建返回模拟连接的数据源
+	 *
+	 * @param closed 连接关闭次数
+	 * @param fail   是否在取得连接时失败
+	 * @return DataSource
+	 */
+	private static DataSource dataSource(AtomicInteger closed, boolean fail) {
+		return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+			if (!"getConnection".equals(method.getName())) {
+				return null;
+			}
+
+			if (fail) {
+				throw new SQLException("连接失败");
+			}
+
+			return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (connection, m, a) -> {
+				if ("close".equals(m.getName())) {
+					closed.incrementAndGet();
+				}
+
+				return null;
+			});
+		});
+	}
+}
@@ -0,0 +1,64 @@
+package com.insight.base.organize.common.tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTests {
+
+	@Test
+	void storesZeroSeparately() {
+		var set = new LongHashSet(4);
+		assertFalse(set.contains(0));
+		assertTrue(set.add(0));
+		assertFalse(set.add(0));
+		assertTrue(set.contains(0));
+		assertEquals(1, set.size());
+		assertArrayEquals(new long[]{0}, set.toArray());
+	}
+
+	@Test
+	void ignoresDuplicates() {
+		var set = new LongHashSet(4);
+		assertTrue(set.add(5));
+		assertTrue(set.add(-5));
+		assertFalse(set.add(5));
+		assertFalse(set.add(-5));
+		assertEquals(2, set.size());
+		assertFalse(set.contains(6));
+	}
+
+	@Test
+	void growsPastInitialCapacity() {
+		var set = new LongHashSet(1);
+		for (long i = 1; i <= 1000; i++) {
+			assertTrue(set.add(i * 1024));
+		}
+
+		assertEquals(1000, set.size());
+		for (long i = 1; i <= 1000; i++) {
+			assertTrue(set.contains(i * 1024));
+			assertFalse(set.add(i * 1024));
+		}
+
+		assertFalse(set.contains(1023));
+	}
+
+	@Test
+	void toArrayReturnsEveryElement() {
+		var set = new LongHashSet(2);
+		long[] values = {0, 3, Long.MAX_VALUE, Long.MIN_VALUE, 42, 7};
+		for (long value : values) {
+			set.add(value);
+			set.add(value);
+		}
+
+		var array = set.toArray();
+		Arrays.sort(array);
+		var expected = values.clone();
+		Arrays.sort(expected);
+		assertArrayEquals(expected, array);
+	}
+}
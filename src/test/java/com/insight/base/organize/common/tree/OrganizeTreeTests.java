@@ -0,0 +1,125 @@
+package com.insight.base.organize.common.tree;
+
+import com.insight.base.organize.common.dto.OrganizeListDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrganizeTreeTests {
+
+	private static OrganizeListDto node(long id, Long parentId, int type) {
+		var dto = new OrganizeListDto();
+		dto.setId(id);
+		dto.setParentId(parentId);
+		dto.setType(type);
+		dto.setName("N" + id);
+		return dto;
+	}
+
+	/**
+	 * 1 ─┬─ 2 ─┬─ 4
+	 *    │     └─ 5
+	 *    └─ 3 ─── 6
+	 * 7
+	 */
+	private static OrganizeTree sample() {
+		return OrganizeTree.of(List.of(node(1, null, 0), node(7, null, 0), node(2, 1L, 1), node(3, 1L, 1),
+				node(4, 2L, 2), node(5, 2L, 2), node(6, 3L, 2)));
+	}
+
+	@Test
+	void subtreeInPreorder() {
+		var tree = sample();
+		assertEquals(7, tree.size());
+		assertArrayEquals(new long[]{1, 2, 4, 5, 3, 6}, tree.getSubIds(1));
+		assertArrayEquals(new long[]{2, 4, 5}, tree.getSubIds(2));
+		assertArrayEquals(new long[]{7}, tree.getSubIds(7));
+		assertArrayEquals(new long[0], tree.getSubIds(99));
+		assertEquals(List.of(3L, 6L), tree.getSubOrganizes(3).stream().map(OrganizeListDto::getId).toList());
+	}
+
+	@Test
+	void ancestorsFromRoot() {
+		var tree = sample();
+		var chain = tree.getAncestors(5).stream().map(OrganizeListDto::getId).toList();
+		assertEquals(List.of(1L, 2L, 5L), chain);
+		assertEquals(2L, tree.getParentId(5));
+		assertNull(tree.getParentId(1));
+		assertTrue(tree.getAncestors(99).isEmpty());
+	}
+
+	@Test
+	void listKeepsSourceOrder() {
+		var ids = sample().toList().stream().map(OrganizeListDto::getId).toList();
+		assertEquals(List.of(1L, 7L, 2L, 3L, 4L, 5L, 6L), ids);
+	}
+
+	@Test
+	void isUnder() {
+		var tree = sample();
+		assertTrue(tree.isUnder(6, 1));
+		assertTrue(tree.isUnder(6, 6));
+		assertFalse(tree.isUnder(6, 2));
+		assertFalse(tree.isUnder(1, 6));
+		assertFalse(tree.isUnder(7, 1));
+	}
+
+	@Test
+	void cycleIsIgnored() {
+		var tree = OrganizeTree.of(List.of(node(1, null, 0), node(2, 3L, 1), node(3, 2L, 1)));
+		assertEquals(1, tree.size());
+		assertFalse(tree.contains(2));
+	}
+
+	@Test
+	void childIds() {
+		var tree = sample();
+		assertArrayEquals(new long[]{2, 3}, tree.getChildIds(1));
+		assertArrayEquals(new long[]{4, 5}, tree.getChildIds(2));
+		assertArrayEquals(new long[0], tree.getChildIds(4));
+		assertArrayEquals(new long[0], tree.getChildIds(99));
+	}
+
+	@Test
+	void nestedMoveLevels() {
+		var tree = sample();
+
+		// 2移为顶级节点, 原上级1移到2下: 2先挂载, 1在其后
+		var parents = new HashMap<Long, Long>();
+		parents.put(2L, null);
+		parents.put(1L, 2L);
+		assertEquals(0, tree.getMoveLevel(2, null, parents));
+		assertEquals(1, tree.getMoveLevel(1, 2L, parents));
+
+		// 4移到7下, 7再移到3下: 4的新上级链中有一个移动节点
+		parents = new HashMap<>();
+		parents.put(4L, 7L);
+		parents.put(7L, 3L);
+		assertEquals(0, tree.getMoveLevel(7, 3L, parents));
+		assertEquals(1, tree.getMoveLevel(4, 7L, parents));
+	}
+
+	@Test
+	void moveCycles() {
+		var tree = sample();
+		var parents = new HashMap<Long, Long>();
+		parents.put(1L, 4L);
+		assertEquals(-1, tree.getMoveLevel(1, 4L, parents));
+		assertEquals(-1, tree.getMoveLevel(2, 2L, parents));
+
+		// 两个节点互为新上级
+		parents = new HashMap<>();
+		parents.put(7L, 3L);
+		parents.put(3L, 7L);
+		assertEquals(-1, tree.getMoveLevel(7, 3L, parents));
+
+		// 新上级链进入不包含自身的环路
+		parents = new HashMap<>();
+		parents.put(7L, 6L);
+		parents.put(3L, 6L);
+		assertEquals(-1, tree.getMoveLevel(7, 6L, parents));
+	}
+}